@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+// Solves sliding puzzles using anytime repairing A* (ARA*) within a deadline
+// Searches in order of g(n) + w * h(n), starting with a high weight w so that a first solution is
+// found quickly, then lowers w and searches again for a shorter solution until w reaches 1
+// Each search continues from the frontier and path costs g(n) of the one before: nodes whose g(n)
+// improved after they were expanded are set aside and returned to the frontier for the next search,
+// instead of being expanded again within the same search
+// The deadline is the one set in the metrics of the search, see SearchStats.stopReason()
+// When the deadline passes, or the search is cancelled, the best solution found so far is returned
+// with a bound on how much longer it may be than an optimal one: its length divided by the lowest
+// g(n) + h(n) of any node left to expand, which no solution can be shorter than if h(n) is admissible
+
+public class AnytimeAStar {
+    // weight of the first search, unless the command gives weight=
+    public static final double DEFAULT_WEIGHT = 3.0;
+    // amount the weight is lowered by after each search
+    private static final double WEIGHT_STEP = 0.5;
+
+    private final Heuristic heuristic;
+    private final int maxNodes;
+    private final SearchStats stats;
+
+    // weight of the current search, read by the frontier's order
+    private double weight;
+    private PriorityQueue<State> open;
+    // nodes whose g(n) improved after they were expanded in the current search
+    private final List<State> inconsistent = new ArrayList<State>();
+    // lowest g(n) found for each board
+    private final LongIntHashMap pathCosts = new LongIntHashMap();
+    // boards expanded in the current search
+    private LongHashSet closed;
+    // shortest solution found so far, null if none
+    private State goal;
+    private int numStatesSeen = 0;
+
+    // Takes as input the heuristic to use, the weight of the first search, maximum number of nodes to consider,
+    // and the metrics to fill in
+    public AnytimeAStar(Heuristic heuristic, double initialWeight, int maxNodes, SearchStats stats) {
+	this.heuristic = heuristic;
+	this.weight = Math.max(initialWeight, 1.0);
+	this.maxNodes = maxNodes;
+	this.stats = stats;
+    }
+
+    // Runs the search from startState
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal and the bound on their suboptimality
+    public int[] solve(State startState) {
+	State start = startState.duplicate();
+	start.setPathCost(0);
+	start.evaluate(heuristic);
+	pathCosts.put(start.getPackedBoard(), start.getPackedBoardHigh(), 0);
+	if ( start.isGoal() )
+	    goal = start;
+	open = newFrontier();
+	open.add(start);
+
+	String stoppedBy = null;
+	while ( true ) {
+	    closed = new LongHashSet();
+	    stoppedBy = improvePath();
+	    if ( stoppedBy != null || weight == 1.0 )
+		break;
+	    // lower the weight, and search again from the nodes left by this search
+	    weight = Math.max(weight - WEIGHT_STEP, 1.0);
+	    PriorityQueue<State> reordered = newFrontier();
+	    for ( State state : open ) {
+		if ( !isStale(state) )
+		    reordered.add(state);
+	    }
+	    reordered.addAll(inconsistent);
+	    inconsistent.clear();
+	    open = reordered;
+	}
+
+	if ( goal == null ) {
+	    Solve.report(stats, stoppedBy == null ? "Goal not found." : stoppedBy + " before a solution was found.");
+	    return new int[] {-1, numStatesSeen};
+	}
+	Solve.printMoves(goal, goal.getPath(), stats);
+	double bound = stoppedBy == null ? 1.0 : bound();
+	Solve.report(stats, String.format(Locale.ROOT, "Suboptimality bound: %.3f (w = %.1f%s)", bound, weight,
+					  stoppedBy == null ? ", optimal" : ", " + stoppedBy.toLowerCase()));
+	return new int[] {goal.getPathCost(), numStatesSeen};
+    }
+
+    // Expands nodes in order of g(n) + w * h(n) until none can lead to a solution shorter than goal
+    // Returns null if the search finished, or the reason it was stopped early
+    private String improvePath() {
+	while ( !open.isEmpty() ) {
+	    State currentState = open.peek();
+	    if ( isStale(currentState) ) {
+		open.poll();
+		stats.stalePops += 1;
+		continue;
+	    }
+	    if ( goal != null && goal.getPathCost() <= priority(currentState) )
+		return null;
+	    String stopReason = stats.stopReason();
+	    if ( stopReason != null )
+		return stopReason;
+	    if ( maxNodes > -1 && numStatesSeen > maxNodes )
+		return "Reach maximum number of nodes: " + maxNodes;
+
+	    open.poll();
+	    closed.add(currentState.getPackedBoard(), currentState.getPackedBoardHigh());
+	    stats.nodesExpanded += 1;
+	    int childCost = currentState.getPathCost() + 1;
+	    for ( int move : currentState.moves() ) {
+		stats.nodesGenerated += 1;
+		long childBoard = currentState.childBoard(move);
+		long childBoardHigh = currentState.childBoardHigh(move);
+		if ( childCost >= pathCosts.get(childBoard, childBoardHigh, Integer.MAX_VALUE) ) {
+		    stats.duplicateHits += 1;
+		    continue;
+		}
+		pathCosts.put(childBoard, childBoardHigh, childCost);
+		State childState = currentState.child(move);
+		numStatesSeen += 1;
+		if ( childState.isGoal() )
+		    goal = childState;
+		// a child that cannot lead to a shorter solution than goal is not searched further
+		else if ( goal != null && childCost + childState.getEstimatedCost() >= goal.getPathCost() )
+		    continue;
+		else if ( closed.contains(childBoard, childBoardHigh) )
+		    inconsistent.add(childState);
+		else
+		    open.add(childState);
+	    }
+	    stats.updatePeaks(open.size(), pathCosts.size());
+	}
+	return null;
+    }
+
+    // Returns the bound on the length of goal divided by the length of an optimal solution
+    // No solution is shorter than the lowest g(n) + h(n) of the nodes left to expand, nor than goal itself
+    private double bound() {
+	int lowest = goal.getPathCost();
+	for ( State state : open )
+	    lowest = Math.min(lowest, state.getPathCost() + state.getEstimatedCost());
+	for ( State state : inconsistent )
+	    lowest = Math.min(lowest, state.getPathCost() + state.getEstimatedCost());
+	return lowest == 0 ? 1.0 : (double) goal.getPathCost() / lowest;
+    }
+
+    // Returns g(n) + w * h(n), the order nodes are expanded in
+    private double priority(State state) {
+	return state.getPathCost() + weight * state.getEstimatedCost();
+    }
+
+    // Returns true if a shorter path to state's board has been found since state was generated
+    private boolean isStale(State state) {
+	return state.getPathCost() > pathCosts.get(state.getPackedBoard(), state.getPackedBoardHigh(), Integer.MAX_VALUE);
+    }
+
+    // Returns an empty frontier ordered by the current weight
+    private PriorityQueue<State> newFrontier() {
+	return new PriorityQueue<State>(Comparator.comparingDouble(this::priority));
+    }
+}
@@ -0,0 +1,274 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Solves a stream of puzzles concurrently
+// Each input line is a board as written in the setState command, optionally preceded by "setState"
+// Blank lines and lines starting with // are skipped
+// The boards are solved on a fixed pool of threads with A* or local beam search, and at most
+// threads + queue boards are in flight at once, so reading waits while the pool is behind
+// Each result is written to standard output as a JSON line as soon as it is done,
+// or, with --ordered, held back until the results of all earlier lines have been written
+// Throughput and latency percentiles are printed to standard error at the end
+// Latency is measured from when a line is read to when its result is written
+
+public class Batch {
+    // heuristic for A*, null to use local beam search
+    private final Heuristic heuristic;
+    private final int beamWidth;
+    private final int maxNodes;
+    private final boolean ordered;
+    // cache of A* solutions shared by the threads, null if none
+    private final SolutionCache cache;
+    private final PrintWriter out;
+    private final ExecutorService pool;
+    // one permit for every board that may be in flight
+    private final Semaphore inFlight;
+
+    // results waiting for the results of earlier lines to be written, keyed by sequence number
+    // Only used with --ordered, and bounded by the number of boards in flight
+    private final Map<Long, Result> pending = new HashMap<Long, Result>();
+    // sequence number of the next result to write with --ordered
+    private long nextToWrite = 0;
+    // latencies of the results written so far, in nanoseconds
+    private long[] latencies = new long[1024];
+    private int numResults = 0;
+    private int numSolved = 0;
+
+    // A solved board waiting to be written
+    private static class Result {
+	// the JSON object without its closing brace, so that the latency can be added
+	final String json;
+	final boolean solved;
+	// time the board's line was read
+	final long readNanos;
+
+	Result(String json, boolean solved, long readNanos) {
+	    this.json = json;
+	    this.solved = solved;
+	    this.readNanos = readNanos;
+	}
+    }
+
+    // Takes as input the A* heuristic, or null to use local beam search with beamWidth states,
+    // maximum number of nodes to consider per board, the number of threads and of queued boards,
+    // whether to write the results in input order, the cache of A* solutions or null, and where to write them
+    public Batch(Heuristic heuristic, int beamWidth, int maxNodes, int threads, int queue, boolean ordered,
+		 SolutionCache cache, PrintWriter out) {
+	this.heuristic = heuristic;
+	this.beamWidth = beamWidth;
+	this.maxNodes = maxNodes;
+	this.ordered = ordered;
+	this.cache = cache;
+	this.out = out;
+	pool = Executors.newFixedThreadPool(threads);
+	inFlight = new Semaphore(threads + queue);
+    }
+
+    // Arguments: [FILE | -] [--threads N] [--queue N] [--solver astar | beam] [--heuristic NAME] [--beam K]
+    // [--maxNodes N] [--ordered] [--cache N]
+    // Reads standard input if no file or - is given
+    // --cache keeps the A* solutions of up to N boards, including the boards along each solution
+    // Solves with A* h2 on one thread per processor, with as many boards queued, by default
+    public static void main(String[] args) throws IOException, InterruptedException {
+	String fileName = "-";
+	int threads = Runtime.getRuntime().availableProcessors();
+	int queue = -1; // default same as threads
+	String solver = "astar";
+	String heuristicName = "h2";
+	int beamWidth = 50;
+	int maxNodes = -1;
+	boolean ordered = false;
+	SolutionCache cache = null;
+	for ( int i = 0; i < args.length; i++ ) {
+	    if ( args[i].equals("--ordered") )
+		ordered = true;
+	    else if ( args[i].equals("--threads") )
+		threads = Integer.parseInt(args[++i]);
+	    else if ( args[i].equals("--queue") )
+		queue = Integer.parseInt(args[++i]);
+	    else if ( args[i].equals("--solver") )
+		solver = args[++i];
+	    else if ( args[i].equals("--heuristic") )
+		heuristicName = args[++i];
+	    else if ( args[i].equals("--beam") )
+		beamWidth = Integer.parseInt(args[++i]);
+	    else if ( args[i].equals("--cache") )
+		cache = new SolutionCache(Integer.parseInt(args[++i]));
+	    else if ( args[i].equals("--maxNodes") )
+		maxNodes = Integer.parseInt(args[++i]);
+	    else
+		fileName = args[i];
+	}
+	Heuristic heuristic = solver.equalsIgnoreCase("beam") ? null : Heuristic.forName(heuristicName);
+
+	PrintWriter out = new PrintWriter(System.out);
+	Batch batch = new Batch(heuristic, beamWidth, maxNodes, threads, queue < 0 ? threads : queue, ordered,
+				  cache, out);
+	long start = System.nanoTime();
+	try ( BufferedReader in = new BufferedReader(fileName.equals("-") ? new InputStreamReader(System.in)
+						     : new FileReader(fileName)) ) {
+	    batch.run(in);
+	}
+	batch.printSummary(System.nanoTime() - start);
+    }
+
+    // Solves every board read from in, returning once all of their results have been written
+    public void run(BufferedReader in) throws IOException, InterruptedException {
+	long sequence = 0;
+	int lineNumber = 0;
+	String line;
+	while ( (line = in.readLine()) != null ) {
+	    lineNumber += 1;
+	    String text = line.trim();
+	    if ( text.isEmpty() || text.startsWith("//") )
+		continue;
+	    if ( text.toLowerCase().startsWith("setstate") )
+		text = text.substring("setState".length()).trim();
+	    // wait for a board in flight to be written before reading further
+	    inFlight.acquire();
+	    long readNanos = System.nanoTime();
+	    long boardSequence = sequence++;
+	    int boardLine = lineNumber;
+	    String boardText = text;
+	    pool.execute(() -> {
+		Result result = null;
+		try {
+		    result = solve(boardLine, boardText, readNanos);
+		}
+		catch (Throwable e) {
+		    result = error(boardLine, boardText, readNanos, e);
+		    throw e;
+		}
+		finally {
+		    // written even if the search threw, so the board's permit is released
+		    // and with --ordered the boards after it are not held forever
+		    write(boardSequence, result);
+		}
+	    });
+	}
+	pool.shutdown();
+	pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	out.flush();
+    }
+
+    // Solves the board given by text, read from the input line numbered lineNumber
+    private Result solve(int lineNumber, String text, long readNanos) {
+	StringBuilder json = new StringBuilder();
+	json.append("{\"line\":").append(lineNumber).append(",\"state\":").append(quote(text));
+	State board;
+	try {
+	    board = State.parse(text);
+	}
+	catch (IllegalArgumentException e) {
+	    json.append(",\"status\":\"invalid\",\"error\":").append(quote(e.getMessage()));
+	    return new Result(json.toString(), false, readNanos);
+	}
+
+	// the search prints nothing, and its solution is taken from stats instead
+	SearchStats stats = new SearchStats();
+	stats.setQuiet(true);
+	int[] solution;
+	try {
+	    if ( heuristic != null )
+		solution = Solve.solveAStar(board, heuristic, maxNodes, new HeapFrontier(), stats, cache);
+	    else {
+		board.evaluate(Heuristic.H2);
+		solution = Solve.solveLocalBeamSearch(board, beamWidth, maxNodes, stats);
+	    }
+	}
+	catch (RuntimeException | OutOfMemoryError e) {
+	    return error(lineNumber, text, readNanos, e);
+	}
+
+	String status = solution[0] > -1 ? "solved" : board.isSolvable() ? "failed" : "unsolvable";
+	json.append(",\"status\":\"").append(status).append("\",").append(stats.toJsonFields());
+	List<String> path = stats.getPath();
+	if ( path != null ) {
+	    json.append(",\"path\":[");
+	    for ( int i = 0; i < path.size(); i++ )
+		json.append(i == 0 ? "\"" : ",\"").append(path.get(i)).append('"');
+	    json.append(']');
+	}
+	return new Result(json.toString(), solution[0] > -1, readNanos);
+    }
+
+    // Returns the result of a board whose search threw e
+    private static Result error(int lineNumber, String text, long readNanos, Throwable e) {
+	return new Result("{\"line\":" + lineNumber + ",\"state\":" + quote(text)
+			  + ",\"status\":\"error\",\"error\":" + quote(String.valueOf(e.getMessage())), false, readNanos);
+    }
+
+    // Writes result, the sequence-th board read, or with --ordered holds it until the earlier ones are written
+    private synchronized void write(long sequence, Result result) {
+	if ( !ordered ) {
+	    writeNow(result);
+	    return;
+	}
+	pending.put(sequence, result);
+	while ( (result = pending.remove(nextToWrite)) != null ) {
+	    writeNow(result);
+	    nextToWrite += 1;
+	}
+    }
+
+    // Writes result with its latency, and lets another board be read
+    private void writeNow(Result result) {
+	long latency = System.nanoTime() - result.readNanos;
+	out.println(result.json + String.format(Locale.ROOT, ",\"latencyMs\":%.3f}", latency / 1e6));
+	out.flush();
+	if ( numResults == latencies.length )
+	    latencies = Arrays.copyOf(latencies, numResults * 2);
+	latencies[numResults++] = latency;
+	if ( result.solved )
+	    numSolved += 1;
+	inFlight.release();
+    }
+
+    // Prints the number of boards solved, the throughput over elapsedNanos, and the latency percentiles
+    public synchronized void printSummary(long elapsedNanos) {
+	long[] sorted = Arrays.copyOf(latencies, numResults);
+	Arrays.sort(sorted);
+	System.err.println(String.format(Locale.ROOT, "Solved %d of %d boards in %.3f s (%.1f boards/s)",
+					 numSolved, numResults, elapsedNanos / 1e9, numResults / (elapsedNanos / 1e9)));
+	System.err.println(String.format(Locale.ROOT, "Latency ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f",
+					 percentile(sorted, 50) / 1e6, percentile(sorted, 90) / 1e6,
+					 percentile(sorted, 99) / 1e6, percentile(sorted, 100) / 1e6));
+	if ( cache != null )
+	    System.err.println(cache);
+    }
+
+    // Returns the p-th percentile of sorted values by the nearest rank method, 0 if there are none
+    private static long percentile(long[] sorted, int p) {
+	if ( sorted.length == 0 )
+	    return 0;
+	int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+	return sorted[Math.max(rank, 1) - 1];
+    }
+
+    // Returns text as a JSON string
+    private static String quote(String text) {
+	StringBuilder quoted = new StringBuilder("\"");
+	for ( int i = 0; i < text.length(); i++ ) {
+	    char c = text.charAt(i);
+	    if ( c == '"' || c == '\\' )
+		quoted.append('\\').append(c);
+	    else if ( c < ' ' )
+		quoted.append(String.format("\\u%04x", (int) c));
+	    else
+		quoted.append(c);
+	}
+	return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,201 @@
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Local beam search that keeps the k states with the lowest f(n) at each step, in bounded memory
+// Each step expands the beam members, on several threads if asked to, into a fixed array with room
+// for 4 children per member, then selects the k children with the lowest f(n) by a quickselect
+// on primitive keys, so no priority queue of every child is built
+// Expanded boards are remembered in a Bloom filter of a fixed number of bytes rather than a set of
+// every board seen, and children whose boards the filter reports are dropped; a false positive drops
+// a board that was never expanded, which only makes the search slightly less thorough
+// Ties in f(n) are broken by the child's position in the array, so the result does not depend on
+// the number of threads
+// Besides the filter, a step holds O(k) states, plus the ancestors of the beam that the path is built from
+
+public class BeamSearch {
+    // most children a state can have
+    private static final int MAX_CHILDREN = 4;
+
+    private final int k;
+    private final Heuristic heuristic;
+    private final int threads;
+    private final int maxNodes;
+    private final SearchStats stats;
+    // boards of the states that have been expanded
+    private final BloomFilter explored;
+
+    // the states to expand in the current step, beam[0] to beam[beamSize - 1]
+    private final State[] beam;
+    private int beamSize = 0;
+    // children[MAX_CHILDREN * i + j] is the j-th child of beam[i] that was not dropped, null if none
+    private final State[] children;
+    // f(n) of each child in the high half and its index in children in the low half, for selection
+    private final long[] keys;
+
+    // Takes as input the number of states to keep, the heuristic to use, the number of threads to
+    // expand the beam with, the size of the explored filter in bytes, maximum number of nodes to consider,
+    // and the metrics to fill in
+    // Throws IllegalArgumentException if k or threads is less than 1, or the filter size is out of range,
+    // before allocating anything
+    public BeamSearch(int k, Heuristic heuristic, int threads, long filterBytes, int maxNodes, SearchStats stats) {
+	if ( k < 1 || k > Integer.MAX_VALUE / MAX_CHILDREN )
+	    throw new IllegalArgumentException("Beam width must be from 1 to " + Integer.MAX_VALUE / MAX_CHILDREN + ": " + k);
+	if ( threads < 1 )
+	    throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+	this.k = k;
+	this.heuristic = heuristic;
+	this.threads = threads;
+	this.maxNodes = maxNodes;
+	this.stats = stats;
+	explored = new BloomFilter(filterBytes);
+	beam = new State[k];
+	children = new State[MAX_CHILDREN * k];
+	keys = new long[MAX_CHILDREN * k];
+    }
+
+    // Runs the search from startState
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal
+    public int[] solve(State startState) throws InterruptedException {
+	State start = startState.duplicate();
+	start.evaluate(heuristic);
+	beam[0] = start;
+	beamSize = 1;
+	int numStatesSeen = 0;
+
+	ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+	try {
+	    // terminate search when the beam is empty after children are added onto beam
+	    while ( beamSize > 0 ) {
+		// if max nodes limit has been reached, stop search
+		stats.nodesNeeded = numStatesSeen;
+		if ( maxNodes > -1 && numStatesSeen > maxNodes ) {
+		    Solve.report(stats, "Reach maximum number of nodes: " + maxNodes);
+		    return new int[] {-1, numStatesSeen};
+		}
+		String stopReason = stats.stopReason();
+		if ( stopReason != null ) {
+		    Solve.report(stats, stopReason);
+		    return new int[] {-1, numStatesSeen};
+		}
+		// the beam is in order of f(n), so the first goal has the shortest path among them
+		for ( int i = 0; i < beamSize; i++ ) {
+		    if ( beam[i].isGoal() ) {
+			Solve.printMoves(beam[i], beam[i].getPath(), stats);
+			return new int[] {beam[i].getPathCost(), numStatesSeen};
+		    }
+		    explored.add(beam[i].getPackedBoard(), beam[i].getPackedBoardHigh());
+		}
+
+		int duplicates;
+		if ( pool == null )
+		    duplicates = expandAll();
+		else {
+		    try {
+			duplicates = pool.submit(this::expandAll).get();
+		    }
+		    catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		    }
+		}
+
+		int count = 0;
+		for ( int i = 0; i < MAX_CHILDREN * beamSize; i++ ) {
+		    if ( children[i] != null ) {
+			long f = children[i].getPathCost() + children[i].getEstimatedCost();
+			keys[count++] = (f << 32) | i;
+		    }
+		}
+		stats.nodesExpanded += beamSize;
+		stats.nodesGenerated += count + duplicates;
+		stats.duplicateHits += duplicates;
+		stats.updatePeaks(count, explored.size());
+		numStatesSeen += count;
+
+		// fill beam with k best children, in order of f(n)
+		int selected = Math.min(k, count);
+		select(keys, count, selected);
+		Arrays.sort(keys, 0, selected);
+		for ( int i = 0; i < selected; i++ )
+		    beam[i] = children[(int) keys[i]];
+		Arrays.fill(children, 0, MAX_CHILDREN * beamSize, null);
+		beamSize = selected;
+	    }
+	}
+	finally {
+	    if ( pool != null )
+		pool.shutdown();
+	}
+
+	// goal not found
+	Solve.report(stats, "Goal not found.");
+	return new int[] {-1, numStatesSeen};
+    }
+
+    // Expands every beam member, in parallel when called from the pool
+    // Returns the number of children dropped as already explored
+    private int expandAll() {
+	IntStream members = IntStream.range(0, beamSize);
+	return (threads > 1 ? members.parallel() : members).map(this::expand).sum();
+    }
+
+    // Stores the children of beam[i] whose boards have not been explored in its slots of children
+    // Only reads the filter, so members can be expanded concurrently
+    // Returns the number of children dropped as already explored
+    private int expand(int i) {
+	State member = beam[i];
+	int[] moves = member.moves();
+	int duplicates = 0;
+	for ( int j = 0; j < moves.length; j++ ) {
+	    if ( explored.mightContain(member.childBoard(moves[j]), member.childBoardHigh(moves[j])) ) {
+		duplicates += 1;
+		continue;
+	    }
+	    State child = member.child(moves[j]);
+	    // the move already updated the child's heuristic value if the member used the same heuristic
+	    if ( child.getHeuristic() != heuristic )
+		child.evaluate(heuristic);
+	    children[MAX_CHILDREN * i + j] = child;
+	}
+	return duplicates;
+    }
+
+    // Rearranges keys[0] to keys[count - 1] so that the smallest selected of them come first, in any order
+    // Quickselect with a median of three pivot, which takes linear time on average
+    private static void select(long[] keys, int count, int selected) {
+	int low = 0;
+	int high = count - 1;
+	while ( low < high ) {
+	    int middle = (low + high) >>> 1;
+	    long pivot = Math.max(Math.min(keys[low], keys[middle]),
+				  Math.min(Math.max(keys[low], keys[middle]), keys[high]));
+	    // partition into keys below the pivot, then keys above it
+	    int i = low;
+	    int j = high;
+	    while ( i <= j ) {
+		while ( keys[i] < pivot )
+		    i += 1;
+		while ( keys[j] > pivot )
+		    j -= 1;
+		if ( i <= j ) {
+		    long swap = keys[i];
+		    keys[i] = keys[j];
+		    keys[j] = swap;
+		    i += 1;
+		    j -= 1;
+		}
+	    }
+	    // keys[low..j] are at most the pivot and keys[i..high] at least the pivot
+	    if ( selected - 1 <= j )
+		high = j;
+	    else if ( selected - 1 >= i )
+		low = i;
+	    else
+		return;
+	}
+    }
+}
@@ -0,0 +1,224 @@
+// Contains benchmarks for the State operations, data structures and search algorithms
+// Each benchmark reports throughput in operations per second and heap bytes allocated per operation,
+// measured on the benchmark thread after warmup rounds that let the JIT compile the hot path
+// Arguments: [set|state|solve], runs every benchmark if none is given
+// JMH versions of the State and solver benchmarks are in the bench module, see bench/pom.xml
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntToLongFunction;
+
+public class Benchmark {
+
+    // number of timed rounds per benchmark, after the same number of warmup rounds
+    private static final int ROUNDS = 10;
+    // seed that the corpus boards are derived from
+    private static final long SEED = 112209913;
+    // number of boards in the corpus
+    private static final int CORPUS_SIZE = 32;
+
+    // fixed corpus of boards, each randomized with 100 moves from its own seed
+    private static final State[] corpus = new State[CORPUS_SIZE];
+    static {
+	for ( int i = 0; i < CORPUS_SIZE; i++ ) {
+	    corpus[i] = new State();
+	    corpus[i].randomize(100, new Random(SEED + i));
+	}
+    }
+
+    // per-thread allocation counter of the HotSpot JVM
+    private static final com.sun.management.ThreadMXBean threadBean =
+	(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // consumes benchmark results so that the JIT cannot remove the work
+    private static long sink = 0;
+    // holds states created by benchmarks so that their allocation is measured
+    private static final State[] escaped = new State[CORPUS_SIZE];
+
+    public static void main(String[] args) {
+	String which = args.length > 0 ? args[0] : "all";
+	// the solvers print their solutions, which would dominate the timings
+	PrintStream console = System.out;
+	System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	try {
+	    if ( which.equals("set") || which.equals("all") )
+		exploredSet(console);
+	    if ( which.equals("state") || which.equals("all") )
+		stateOperations(console);
+	    if ( which.equals("solve") || which.equals("all") )
+		solvers(console);
+	}
+	finally {
+	    System.setOut(console);
+	}
+	console.println("(sink " + sink + ")");
+    }
+
+    // State benchmarks
+    // One operation is one call on one corpus board
+    public static void stateOperations(PrintStream out) {
+	State[] evaluated = new State[CORPUS_SIZE];
+	for ( int i = 0; i < CORPUS_SIZE; i++ ) {
+	    evaluated[i] = corpus[i].duplicate();
+	    evaluated[i].evaluate(Heuristic.H2);
+	}
+	Frontier frontier = new HeapFrontier();
+	LongHashSet explored = new LongHashSet();
+	SearchStats stats = new SearchStats();
+	// holds every child of the corpus boards, so that expanding them only finds duplicates
+	LongHashSet allChildren = new LongHashSet();
+	for ( int i = 0; i < CORPUS_SIZE; i++ ) {
+	    for ( int move : corpus[i].moves() )
+		allChildren.add(corpus[i].childBoard(move));
+	}
+
+	String[] names = {"State.duplicate", "State.calculateH1", "State.calculateH2",
+			  "State.hashCode", "State.equals", "State.childBoard",
+			  "Solve.processChildren", "Solve.processChildren (duplicates)"};
+	double[][] results = {
+	    measure(1000, i -> {
+		    // stored so that escape analysis cannot remove the allocation
+		    escaped[i % CORPUS_SIZE] = corpus[i % CORPUS_SIZE].duplicate();
+		    return escaped[i % CORPUS_SIZE].getPackedBoard();
+		}),
+	    measure(1000, i -> corpus[i % CORPUS_SIZE].calculateH1()),
+	    measure(1000, i -> corpus[i % CORPUS_SIZE].calculateH2()),
+	    measure(1000, i -> corpus[i % CORPUS_SIZE].hashCode()),
+	    measure(1000, i -> corpus[i % CORPUS_SIZE].equals(corpus[(i + 1) % CORPUS_SIZE]) ? 1 : 0),
+	    measure(1000, i -> {
+		    long boards = 0;
+		    for ( int move : corpus[i % CORPUS_SIZE].moves() )
+			boards += corpus[i % CORPUS_SIZE].childBoard(move);
+		    return boards;
+		}),
+	    measure(1000, i -> {
+		    int children = Solve.processChildren(evaluated[i % CORPUS_SIZE], Heuristic.H2, frontier, explored,
+							     null, stats);
+		    frontier.clear();
+		    return children;
+		}),
+	    measure(1000, i -> Solve.processChildren(evaluated[i % CORPUS_SIZE], Heuristic.H2, frontier, allChildren,
+						     null, stats))
+	};
+	report(out, "State operations", names, results);
+    }
+
+    // End to end solver benchmarks
+    // One operation is solving one corpus board
+    public static void solvers(PrintStream out) {
+	String[] names = {"Solve.solveAStar h1", "Solve.solveAStar h2", "Solve.solveLocalBeamSearch 50"};
+	double[][] results = {
+	    measure(CORPUS_SIZE, i -> Solve.solveAStar(corpus[i], "h1", -1)[1]),
+	    measure(CORPUS_SIZE, i -> Solve.solveAStar(corpus[i], "h2", -1)[1]),
+	    measure(CORPUS_SIZE, i -> Solve.solveLocalBeamSearch(corpus[i], 50, -1)[1])
+	};
+	report(out, "Solvers on " + CORPUS_SIZE + " boards randomized with 100 moves", names, results);
+    }
+
+    // Runs operation(0) to operation(opsPerRound - 1) for ROUNDS warmup rounds and ROUNDS timed rounds
+    // Returns {operations per second, bytes allocated per operation} over the timed rounds
+    private static double[] measure(int opsPerRound, IntToLongFunction operation) {
+	long thread = Thread.currentThread().getId();
+	long nanos = 0;
+	long bytes = 0;
+	for ( int round = 0; round < 2 * ROUNDS; round++ ) {
+	    long startBytes = threadBean.getThreadAllocatedBytes(thread);
+	    long start = System.nanoTime();
+	    for ( int i = 0; i < opsPerRound; i++ )
+		sink += operation.applyAsLong(i);
+	    long end = System.nanoTime();
+	    long endBytes = threadBean.getThreadAllocatedBytes(thread);
+	    if ( round >= ROUNDS ) { // skip warmup rounds
+		nanos += end - start;
+		bytes += endBytes - startBytes;
+	    }
+	}
+	long ops = (long) opsPerRound * ROUNDS;
+	return new double[] {ops / (nanos / 1e9), (double) bytes / ops};
+    }
+
+    // Prints a table of benchmark results under a title
+    private static void report(PrintStream out, String title, String[] names, double[][] results) {
+	out.println(title);
+	for ( int i = 0; i < names.length; i++ )
+	    out.printf("%-36s%14.0f ops/s%12.1f B/op%n", names[i], results[i][0], results[i][1]);
+	out.println();
+    }
+
+    // Explored set benchmark
+    // Compares LongHashSet against HashSet<State> when adding and then looking up
+    // every state reachable from the goal, in a shuffled order
+    public static void exploredSet(PrintStream out) {
+	List<State> states = reachableStates();
+	Collections.shuffle(states, new Random(SEED));
+	long[] boards = new long[states.size()];
+	for ( int i = 0; i < boards.length; i++ )
+	    boards[i] = states.get(i).getPackedBoard();
+	out.println("Explored set on " + states.size() + " reachable states");
+
+	long hashSetTime = 0;
+	long longSetTime = 0;
+	int found = 0; // consumed so that the lookups are not optimized away
+	for ( int round = 0; round < 2 * ROUNDS; round++ ) {
+	    long start = System.nanoTime();
+	    HashSet<State> hashSet = new HashSet<State>();
+	    for ( int i = 0; i < states.size(); i++ )
+		hashSet.add(states.get(i));
+	    for ( int i = 0; i < states.size(); i++ ) {
+		if ( hashSet.contains(states.get(i)) )
+		    found += 1;
+	    }
+	    long middle = System.nanoTime();
+	    LongHashSet longSet = new LongHashSet();
+	    for ( int i = 0; i < boards.length; i++ )
+		longSet.add(boards[i]);
+	    for ( int i = 0; i < boards.length; i++ ) {
+		if ( longSet.contains(boards[i]) )
+		    found += 1;
+	    }
+	    long end = System.nanoTime();
+
+	    if ( round >= ROUNDS ) { // skip warmup rounds
+		hashSetTime += middle - start;
+		longSetTime += end - middle;
+	    }
+	}
+
+	sink += found;
+	out.println("HashSet<State>\t" + nanosPerOp(hashSetTime, states.size()) + " ns/op");
+	out.println("LongHashSet\t" + nanosPerOp(longSetTime, states.size()) + " ns/op");
+	out.println();
+    }
+
+    // Returns every state reachable from the goal state, found by breadth first search
+    private static List<State> reachableStates() {
+	List<State> states = new ArrayList<State>();
+	LongHashSet seen = new LongHashSet();
+	State goal = new State();
+	states.add(goal);
+	seen.add(goal.getPackedBoard());
+	// states doubles as the BFS queue
+	for ( int next = 0; next < states.size(); next++ ) {
+	    State current = states.get(next);
+	    boolean[] legal = current.legalMoves();
+	    for ( int move = 0; move < legal.length; move++ ) {
+		if ( legal[move] ) {
+		    State child = current.child(move);
+		    if ( seen.add(child.getPackedBoard()) )
+			states.add(child);
+		}
+	    }
+	}
+	return states;
+    }
+
+    // Returns the average time of one add plus one lookup, in nanoseconds
+    private static double nanosPerOp(long totalNanos, int numKeys) {
+	return (double) totalNanos / ROUNDS / numKeys;
+    }
+}
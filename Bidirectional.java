@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+// Solves the 8-puzzle using front-to-end bidirectional A*
+// A forward search runs from the start state towards the goal state, and a backward search
+// runs from the goal state towards the start state; moves are reversible, so the backward
+// search uses the same moves, and its heuristic estimates the distance to the start state
+// Each direction keeps its own open list, closed set and best path cost per packed board
+// Whenever a search generates a board the other search has reached, the two paths form a solution,
+// and the search stops once no open node in one of the directions could lead to a cheaper one
+// The solution is the forward path followed by the backward path reversed, with each move inverted
+
+public class Bidirectional {
+    private final Heuristic heuristic;
+    private final int maxNodes;
+    private final SearchStats stats;
+
+    private Direction forward;
+    private Direction backward;
+
+    // cost of the best solution found so far, and the two nodes where it meets
+    private int bestCost = Integer.MAX_VALUE;
+    private State meetForward;
+    private State meetBackward;
+    private int numStatesSeen = 0;
+
+    // Takes as input the forward heuristic, maximum number of nodes to consider, and the metrics to fill in
+    // The backward search uses misplaced tiles for h1 and Manhattan distance otherwise,
+    // both measured against the start state
+    public Bidirectional(Heuristic heuristic, int maxNodes, SearchStats stats) {
+	this.heuristic = heuristic;
+	this.maxNodes = maxNodes;
+	this.stats = stats;
+    }
+
+    // Runs the search from startState
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal
+    public int[] solve(State startState) {
+	State start = startState.duplicate();
+	start.setPathCost(0);
+	start.evaluate(heuristic);
+	State goal = new State(start.getDimension());
+
+	forward = new Direction(null);
+	backward = new Direction(start.getBoard());
+	forward.add(start);
+	goal.setEstimatedCost(backward.estimate(goal));
+	backward.add(goal);
+	if ( start.isGoal() ) {
+	    bestCost = 0;
+	    meetForward = start;
+	    meetBackward = goal;
+	}
+
+	while ( forward.hasOpen() && backward.hasOpen() ) {
+	    // a cheaper solution would have to pass through an open node of each direction,
+	    // and with consistent heuristics its cost is at least that direction's minimum f(n)
+	    if ( bestCost <= Math.max(forward.minF(), backward.minF()) )
+		break;
+	    stats.nodesNeeded = numStatesSeen;
+	    if ( maxNodes > -1 && numStatesSeen > maxNodes ) {
+		Solve.report(stats, "Reach maximum number of nodes: " + maxNodes);
+		return new int[] {-1, numStatesSeen};
+	    }
+	    String stopReason = stats.stopReason();
+	    if ( stopReason != null ) {
+		Solve.report(stats, stopReason);
+		return new int[] {-1, numStatesSeen};
+	    }
+	    // expand the direction with the smaller open list
+	    if ( forward.openSize() <= backward.openSize() )
+		expand(forward, backward);
+	    else
+		expand(backward, forward);
+	    stats.updatePeaks(forward.openSize() + backward.openSize(), forward.closedSize() + backward.closedSize());
+	}
+
+	if ( meetForward == null ) {
+	    Solve.report(stats, "No solution found.");
+	    return new int[] {-1, numStatesSeen};
+	}
+	// follow the backward path from the meeting board back to the goal, inverting each move
+	State solution = meetForward;
+	for ( State s = meetBackward; s.getParent() != null; s = s.getParent() )
+	    solution = solution.child(s.getLastMove() ^ 1); // move codes come in inverse pairs
+	Solve.printMoves(solution, solution.getPath(), stats);
+	return new int[] {solution.getPathCost(), numStatesSeen};
+    }
+
+    // Expands the best open node of direction, checking each child against the opposite direction
+    private void expand(Direction direction, Direction opposite) {
+	State currentState = direction.pollOpen();
+	stats.nodesExpanded += 1;
+	int childCost = currentState.getPathCost() + 1;
+	for ( int move : currentState.moves() ) {
+	    stats.nodesGenerated += 1;
+	    if ( !direction.improves(currentState.childBoard(move), currentState.childBoardHigh(move), childCost) ) {
+		stats.duplicateHits += 1;
+		continue;
+	    }
+	    State childState = currentState.child(move);
+	    if ( direction.target != null )
+		childState.setEstimatedCost(direction.estimate(childState));
+	    direction.add(childState);
+	    numStatesSeen += 1;
+
+	    // the two searches meet at this board
+	    State other = opposite.best(childState);
+	    if ( other != null && childState.getPathCost() + other.getPathCost() < bestCost ) {
+		bestCost = childState.getPathCost() + other.getPathCost();
+		meetForward = direction == forward ? childState : other;
+		meetBackward = direction == forward ? other : childState;
+	    }
+	}
+    }
+
+    // One direction of the search
+    private class Direction {
+	// open list, ordered by f(n)
+	private final PriorityQueue<State> open = new PriorityQueue<State>();
+	// boards whose best node has been expanded
+	private final LongHashSet closed = new LongHashSet();
+	// index in nodes of the lowest cost node found for each board
+	private final LongIntHashMap bestIndex = new LongIntHashMap();
+	private final ArrayList<State> nodes = new ArrayList<State>();
+	// the board this direction searches towards, null for the goal state,
+	// and targetCell[tile] is the cell tile occupies on it
+	final byte[][] target;
+	private final int[] targetCell;
+
+	Direction(byte[][] target) {
+	    this.target = target;
+	    if ( target != null ) {
+		int n = target.length;
+		targetCell = new int[n * n];
+		for ( int i = 0; i < n; i++ ) {
+		    for ( int j = 0; j < n; j++ )
+			targetCell[target[i][j]] = i * n + j;
+		}
+	    }
+	    else
+		targetCell = null;
+	}
+
+	// Returns the heuristic value of state towards target
+	int estimate(State state) {
+	    int estimate = 0;
+	    int n = state.getDimension();
+	    for ( int cell = 0; cell < n * n; cell++ ) {
+		int tile = state.tileAt(cell);
+		if ( tile == 0 ) // the blank is not a tile
+		    continue;
+		int goalCell = targetCell[tile];
+		if ( heuristic == Heuristic.H1 )
+		    estimate += goalCell == cell ? 0 : 1;
+		else
+		    estimate += Math.abs( goalCell / n - cell / n ) + Math.abs( goalCell % n - cell % n );
+	    }
+	    return estimate;
+	}
+
+	// Returns true if a node reaching the board with packed halves board and boardHigh at pathCost
+	// should be added: the board has not been closed and no node before it reaches the board as cheaply
+	boolean improves(long board, long boardHigh, int pathCost) {
+	    if ( closed.contains(board, boardHigh) )
+		return false;
+	    int index = bestIndex.get(board, boardHigh, -1);
+	    return index < 0 || nodes.get(index).getPathCost() > pathCost;
+	}
+
+	// Adds state to the open list as the lowest cost node for its board
+	// Only called for states whose board improves() accepts
+	void add(State state) {
+	    bestIndex.put(state.getPackedBoard(), state.getPackedBoardHigh(), nodes.size());
+	    nodes.add(state);
+	    open.add(state);
+	}
+
+	// Returns the lowest cost node found for state's board, or null if the board has not been reached
+	State best(State state) {
+	    int index = bestIndex.get(state.getPackedBoard(), state.getPackedBoardHigh(), -1);
+	    return index < 0 ? null : nodes.get(index);
+	}
+
+	// Removes open nodes that were closed or superseded by a cheaper node for the same board
+	private void dropStale() {
+	    while ( !open.isEmpty() ) {
+		State top = open.peek();
+		if ( !closed.contains(top.getPackedBoard(), top.getPackedBoardHigh()) && best(top) == top )
+		    return;
+		open.poll();
+		stats.stalePops += 1;
+	    }
+	}
+
+	boolean hasOpen() {
+	    dropStale();
+	    return !open.isEmpty();
+	}
+
+	// Returns the lowest f(n) among the open nodes
+	int minF() {
+	    dropStale();
+	    State top = open.peek();
+	    return top == null ? Integer.MAX_VALUE : top.getPathCost() + top.getEstimatedCost();
+	}
+
+	// Removes the open node with the lowest f(n) and closes its board
+	State pollOpen() {
+	    dropStale();
+	    State state = open.poll();
+	    closed.add(state.getPackedBoard(), state.getPackedBoardHigh());
+	    return state;
+	}
+
+	int openSize() {
+	    return open.size();
+	}
+
+	int closedSize() {
+	    return closed.size();
+	}
+    }
+}
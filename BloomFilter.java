@@ -0,0 +1,76 @@
+// Set of packed boards held in a fixed number of bytes, which may report boards that were never added
+// Each board sets PROBES bits chosen by two hashes of the board, and is reported as contained
+// if all of its bits are set; boards that were added are always reported
+// The two halves of the packed board of a 5x5 board are mixed into one long before hashing
+// With m bits and n boards, a board that was not added is reported with probability about
+// (1 - e^(-PROBES n / m))^PROBES
+
+public class BloomFilter {
+    // number of bits set per board
+    private static final int PROBES = 3;
+    // the filter holds at least one long
+    private static final int MIN_BITS = 64;
+    // the largest filter, 2^30 longs, is the largest power of two number of longs an array can hold
+    public static final long MAX_BYTES = 1L << 33;
+
+    private final long[] bits;
+    // number of bits - 1, the number of bits is a power of two
+    private final long mask;
+    // number of boards added
+    private long size = 0;
+
+    // Creates an empty filter of at most the input number of bytes, rounded down to a power of two
+    // Throws IllegalArgumentException if bytes is not from 1 to MAX_BYTES
+    public BloomFilter(long bytes) {
+	if ( bytes < 1 || bytes > MAX_BYTES )
+	    throw new IllegalArgumentException("Filter size must be from 1 to " + MAX_BYTES + " bytes: " + bytes);
+	long numBits = Long.highestOneBit(Math.max(bytes * 8, MIN_BITS));
+	bits = new long[(int) (numBits >>> 6)];
+	mask = numBits - 1;
+    }
+
+    // Adds board to the filter
+    public void add(long board) {
+	add(board, 0);
+    }
+
+    // Adds the board with packed halves board and high to the filter
+    public void add(long board, long high) {
+	board ^= high * 0xD6E8FEB86659FD93L;
+	long first = board * 0x9E3779B97F4A7C15L;
+	long second = Long.rotateLeft(board * 0xC2B2AE3D27D4EB4FL, 31) | 1;
+	for ( int i = 0; i < PROBES; i++ ) {
+	    long bit = (first + i * second) & mask;
+	    bits[(int) (bit >>> 6)] |= 1L << bit;
+	}
+	size += 1;
+    }
+
+    // Returns true if board may have been added, false if it certainly has not
+    public boolean mightContain(long board) {
+	return mightContain(board, 0);
+    }
+
+    // Returns true if the board with packed halves board and high may have been added
+    public boolean mightContain(long board, long high) {
+	board ^= high * 0xD6E8FEB86659FD93L;
+	long first = board * 0x9E3779B97F4A7C15L;
+	long second = Long.rotateLeft(board * 0xC2B2AE3D27D4EB4FL, 31) | 1;
+	for ( int i = 0; i < PROBES; i++ ) {
+	    long bit = (first + i * second) & mask;
+	    if ( (bits[(int) (bit >>> 6)] & (1L << bit)) == 0 )
+		return false;
+	}
+	return true;
+    }
+
+    // Returns the number of boards added, counting a board added twice twice
+    public long size() {
+	return size;
+    }
+
+    // Returns the number of bytes the filter's bits take up
+    public long getBytes() {
+	return bits.length * 8L;
+    }
+}
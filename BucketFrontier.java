@@ -0,0 +1,69 @@
+import java.util.Arrays;
+
+// Frontier backed by an array of buckets indexed by f(n)
+// f(n) is a small non-negative integer for the 8-puzzle, so add and poll take O(1) amortized time
+// Within a bucket states come out last in, first out, which favours the deepest states
+// and so tends to reach the goal sooner among states of equal f(n)
+
+public class BucketFrontier implements Frontier {
+    private static final int INITIAL_BUCKETS = 64;
+    private static final int INITIAL_BUCKET_SIZE = 16;
+
+    // buckets[f] is a stack holding the states with f(n) == f
+    private State[][] buckets = new State[INITIAL_BUCKETS][];
+    // bucketSizes[f] is the number of states in buckets[f]
+    private int[] bucketSizes = new int[INITIAL_BUCKETS];
+    // no bucket below minBucket holds a state
+    private int minBucket = 0;
+    private int size = 0;
+
+    public void add(State state) {
+	int f = state.getPathCost() + state.getEstimatedCost();
+	if ( f >= buckets.length ) {
+	    int newLength = Math.max(buckets.length * 2, f + 1);
+	    buckets = Arrays.copyOf(buckets, newLength);
+	    bucketSizes = Arrays.copyOf(bucketSizes, newLength);
+	}
+	State[] bucket = buckets[f];
+	if ( bucket == null )
+	    bucket = buckets[f] = new State[INITIAL_BUCKET_SIZE];
+	else if ( bucketSizes[f] == bucket.length )
+	    bucket = buckets[f] = Arrays.copyOf(bucket, bucket.length * 2);
+	bucket[bucketSizes[f]++] = state;
+	// f(n) never decreases along a path for consistent heuristics,
+	// but a heuristic that is only admissible may add states below the current minimum
+	if ( f < minBucket )
+	    minBucket = f;
+	size += 1;
+    }
+
+    public State poll() {
+	if ( size == 0 )
+	    return null;
+	while ( bucketSizes[minBucket] == 0 )
+	    minBucket += 1;
+	int top = --bucketSizes[minBucket];
+	State state = buckets[minBucket][top];
+	buckets[minBucket][top] = null; // let the state be garbage collected
+	size -= 1;
+	return state;
+    }
+
+    public int size() {
+	return size;
+    }
+
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    public void clear() {
+	for ( int f = 0; f < buckets.length; f++ ) {
+	    if ( buckets[f] != null )
+		Arrays.fill(buckets[f], 0, bucketSizes[f], null);
+	    bucketSizes[f] = 0;
+	}
+	minBucket = 0;
+	size = 0;
+    }
+}
@@ -0,0 +1,84 @@
+// Resource limits for a budgeted A* search, and what to do when one is reached
+// Set from the command file with: budget [expansions=N] [frontier=N] [bytes=N[K|M|G]] [fallback=prune|weighted|beam]
+// A limit of -1 means no limit
+
+public class Budget {
+    // What a budgeted search does once a limit is reached
+    public enum Fallback {
+	// drop all but the best frontier nodes when a memory limit is reached and keep searching,
+	// then finish with weighted A* if the expansion limit is reached
+	PRUNE,
+	// finish with weighted A* from the best frontier node
+	WEIGHTED,
+	// finish with local beam search from the best frontier node
+	BEAM
+    }
+
+    private final long maxExpansions;
+    private final long maxFrontier;
+    private final long maxBytes;
+    private final Fallback fallback;
+
+    public Budget(long maxExpansions, long maxFrontier, long maxBytes, Fallback fallback) {
+	this.maxExpansions = maxExpansions;
+	this.maxFrontier = maxFrontier;
+	this.maxBytes = maxBytes;
+	this.fallback = fallback;
+    }
+
+    // Returns the budget described by the key=value options in arguments
+    // Options that are not given have no limit, and the fallback defaults to prune
+    public static Budget parse(String[] arguments) {
+	long maxExpansions = Long.parseLong(Solve.option(arguments, "expansions", "-1"));
+	long maxFrontier = Long.parseLong(Solve.option(arguments, "frontier", "-1"));
+	long maxBytes = parseBytes(Solve.option(arguments, "bytes", "-1"));
+	String fallback = Solve.option(arguments, "fallback", "prune");
+	try {
+	    return new Budget(maxExpansions, maxFrontier, maxBytes, Fallback.valueOf(fallback.toUpperCase()));
+	}
+	catch (IllegalArgumentException e) {
+	    throw new IllegalArgumentException("Unknown fallback: " + fallback);
+	}
+    }
+
+    // Returns the number of bytes in a size such as 512, 64K, 16M or 1G
+    // Throws IllegalArgumentException if it is not a number or does not fit in a long
+    static long parseBytes(String size) {
+	String upper = size.toUpperCase();
+	long unit = 1;
+	if ( upper.endsWith("K") )
+	    unit = 1L << 10;
+	else if ( upper.endsWith("M") )
+	    unit = 1L << 20;
+	else if ( upper.endsWith("G") )
+	    unit = 1L << 30;
+	if ( unit > 1 )
+	    upper = upper.substring(0, upper.length() - 1);
+	long count = Long.parseLong(upper);
+	if ( Math.abs(count) > Long.MAX_VALUE / unit )
+	    throw new IllegalArgumentException("Size too large: " + size);
+	return count * unit;
+    }
+
+    public long getMaxExpansions() {
+	return maxExpansions;
+    }
+
+    public long getMaxFrontier() {
+	return maxFrontier;
+    }
+
+    public long getMaxBytes() {
+	return maxBytes;
+    }
+
+    public Fallback getFallback() {
+	return fallback;
+    }
+
+    @Override
+    public String toString() {
+	return "expansions=" + maxExpansions + " frontier=" + maxFrontier + " bytes=" + maxBytes
+	    + " fallback=" + fallback.name().toLowerCase();
+    }
+}
@@ -0,0 +1,217 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+// Solves the 8-puzzle using A* within a Budget of expansions, frontier size and estimated memory
+// Instead of failing when a limit is reached, the search degrades according to the budget's fallback:
+// it prunes the frontier to its best nodes (in the style of SMA*), or finishes from the best
+// frontier node with weighted A* or local beam search
+// Each weighted A* round runs within the same budget; if a round also reaches a limit, the search
+// commits to the node closest to the goal that the round generated and starts a new round from there
+// Pruned nodes are forgotten, so a pruned frontier can empty before the goal is found; this counts as
+// reaching a limit, and the search continues with the weighted A* or beam fallback
+// A round only commits to a node it generated, which is deeper than the round's root, and never to the
+// board of an earlier root, so the rounds cannot stall on one root
+// Local beam search keeps only k nodes per step, so it runs without an expansion limit, and it also
+// finishes the search if the weighted A* rounds run out
+// The answer is reported together with the phase that produced it, since only an answer
+// from unpruned A* is guaranteed to be optimal
+
+public class BudgetedAStar {
+    // estimated heap bytes of a frontier node: the State object and its queue slot
+    private static final long FRONTIER_NODE_BYTES = 64;
+    // estimated heap bytes of an explored node: its explored set entry and the State object,
+    // which stays reachable through the parent links of its descendants
+    private static final long EXPLORED_NODE_BYTES = 80;
+    // heuristic weight of the weighted A* fallback
+    private static final double FALLBACK_WEIGHT = 3.0;
+    // beam width of the local beam search fallback
+    private static final int FALLBACK_BEAM_WIDTH = 50;
+    // maximum number of weighted A* rounds before giving up
+    // Rounds under a tight budget move only a few steps each, and a weak heuristic such as h1 needs
+    // thousands of them on some 8-puzzles
+    private static final int MAX_FALLBACK_ROUNDS = 10000;
+
+    private final Budget budget;
+    private final SearchStats stats;
+
+    // set by search(): the limit that stopped it, or null, and the best frontier node at that point
+    private String limitReached;
+    private State bestNode;
+    // set by search(): the generated node with the lowest heuristic value whose board has not been a root,
+    // null if there is none, and the generated node with the lowest heuristic value
+    private State closestNode;
+    private State closestAny;
+    // boards that searches have started from
+    private final LongHashSet roots = new LongHashSet();
+    // set by search() once it has dropped frontier nodes
+    private boolean pruned = false;
+
+    public BudgetedAStar(Budget budget, SearchStats stats) {
+	this.budget = budget;
+	this.stats = stats;
+    }
+
+    // Runs the search from startState using the input heuristic
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes generated during search
+    // Prints out the steps to reach goal and which phase of the search found them
+    public int[] solve(State startState, Heuristic heuristic) {
+	State start = startState.duplicate();
+	start.setPathCost(0);
+	start.evaluate(heuristic);
+
+	String answeredBy = "A* (optimal)";
+	State goal = search(start, 1.0, budget.getFallback() == Budget.Fallback.PRUNE);
+	if ( goal != null && pruned )
+	    answeredBy = "A* with pruned frontier (not guaranteed optimal)";
+
+	if ( goal == null && limitReached != null && bestNode != null && stats.stopReason() == null ) {
+	    Solve.report(stats, "Budget limit reached: " + limitReached);
+	    if ( budget.getFallback() == Budget.Fallback.BEAM )
+		return beamFallback(bestNode, "local beam search fallback");
+
+	    State root = bestNode;
+	    int rounds = 0;
+	    while ( goal == null && limitReached != null && root != null && rounds < MAX_FALLBACK_ROUNDS ) {
+		goal = search(root, FALLBACK_WEIGHT, true);
+		// commit to a board that has not been a root if the round generated one
+		root = closestNode != null ? closestNode : closestAny;
+		rounds += 1;
+	    }
+	    answeredBy = "weighted A* fallback (w = " + FALLBACK_WEIGHT + ", " + rounds + " round"
+		+ (rounds == 1 ? ")" : "s)");
+	    // rounds that find no goal only wander, so finish with beam search, which needs no limit
+	    if ( goal == null && root != null && stats.stopReason() == null )
+		return beamFallback(root, answeredBy + ", then local beam search");
+	}
+
+	if ( goal == null ) {
+	    String stopReason = stats.stopReason();
+	    Solve.report(stats, stopReason != null ? stopReason : "No solution found.");
+	    return new int[] {-1, (int) stats.nodesGenerated};
+	}
+	Solve.printMoves(goal, goal.getPath(), stats);
+	Solve.report(stats, "Answer from: " + answeredBy);
+	return new int[] {goal.getPathCost(), (int) stats.nodesGenerated};
+    }
+
+    // Finishes the search with local beam search from node, which prints its own solution
+    // including the moves to node, and reports that the answer came from the named phase
+    private int[] beamFallback(State node, String answeredBy) {
+	SearchStats beamStats = stats.subsearch();
+	int[] solution = Solve.solveLocalBeamSearch(node, FALLBACK_BEAM_WIDTH, -1, beamStats);
+	stats.merge(beamStats);
+	if ( solution[0] > -1 )
+	    Solve.report(stats, "Answer from: " + answeredBy + " (k = " + FALLBACK_BEAM_WIDTH + ")");
+	return new int[] {solution[0], (int) stats.nodesGenerated};
+    }
+
+    // Searches from start in order of g(n) + weight * h(n) within the budget's expansion limit
+    // If prune is true, a memory limit drops the worst frontier nodes instead of stopping the search
+    // Returns the goal node, or null if the frontier emptied, the search must stop, or a limit was reached,
+    // in which case limitReached and bestNode describe the limit
+    // A frontier that empties after it was pruned counts as reaching the frontier limit
+    private State search(State start, double weight, boolean prune) {
+	Comparator<State> order = Comparator.comparingDouble(
+	    (State s) -> s.getPathCost() + weight * s.getEstimatedCost());
+	PriorityQueue<State> frontier = new PriorityQueue<State>(order);
+	LongHashSet explored = new LongHashSet();
+	long expansions = 0;
+	boolean prunedHere = false;
+	limitReached = null;
+	closestNode = null;
+	closestAny = null;
+	roots.add(start.getPackedBoard(), start.getPackedBoardHigh());
+	frontier.add(start);
+
+	while ( !frontier.isEmpty() ) {
+	    if ( stats.stopReason() != null )
+		return null;
+	    if ( budget.getMaxExpansions() > -1 && expansions >= budget.getMaxExpansions() )
+		return stop("expansions", frontier);
+	    String memoryLimit = memoryLimitReached(frontier.size(), explored.size());
+	    if ( memoryLimit != null ) {
+		if ( !(prune && prune(frontier, order, explored.size())) )
+		    return stop(memoryLimit, frontier);
+		prunedHere = true;
+	    }
+
+	    State currentState = frontier.poll();
+	    if ( currentState.isGoal() )
+		return currentState;
+	    if ( !explored.add(currentState.getPackedBoard(), currentState.getPackedBoardHigh()) ) {
+		stats.stalePops += 1;
+		continue;
+	    }
+
+	    expansions += 1;
+	    stats.nodesExpanded += 1;
+	    for ( int move : currentState.moves() ) {
+		stats.nodesGenerated += 1;
+		if ( explored.contains(currentState.childBoard(move), currentState.childBoardHigh(move)) )
+		    stats.duplicateHits += 1;
+		else {
+		    State childState = currentState.child(move);
+		    frontier.add(childState);
+		    if ( closestAny == null || childState.getEstimatedCost() < closestAny.getEstimatedCost() )
+			closestAny = childState;
+		    if ( (closestNode == null || childState.getEstimatedCost() < closestNode.getEstimatedCost())
+			 && !roots.contains(childState.getPackedBoard(), childState.getPackedBoardHigh()) )
+			closestNode = childState;
+		}
+	    }
+	    stats.updatePeaks(frontier.size(), explored.size());
+	}
+	// the goal may have been among the pruned nodes, so continue from the closest node generated
+	if ( prunedHere ) {
+	    limitReached = "pruned frontier emptied";
+	    bestNode = closestNode != null ? closestNode : closestAny;
+	}
+	return null;
+    }
+
+    // Records that the named limit stopped the search, and the frontier's best node
+    // Returns null, the result of the stopped search
+    private State stop(String limit, PriorityQueue<State> frontier) {
+	limitReached = limit;
+	bestNode = frontier.peek();
+	return null;
+    }
+
+    // Returns the name of the memory limit the input sizes are over, or null if they are within the budget
+    private String memoryLimitReached(long frontierSize, long exploredSize) {
+	if ( budget.getMaxFrontier() > -1 && frontierSize > budget.getMaxFrontier() )
+	    return "frontier";
+	if ( budget.getMaxBytes() > -1 && estimatedBytes(frontierSize, exploredSize) > budget.getMaxBytes() )
+	    return "bytes";
+	return null;
+    }
+
+    // Returns the estimated heap bytes used by a search with the input frontier and explored set sizes
+    private static long estimatedBytes(long frontierSize, long exploredSize) {
+	return frontierSize * FRONTIER_NODE_BYTES + exploredSize * EXPLORED_NODE_BYTES;
+    }
+
+    // Drops all but the best nodes of the frontier, keeping half of what the memory limits allow
+    // so that pruning is not needed again on the next expansion
+    // Returns false if the explored set alone uses the memory budget, so no frontier node can be kept
+    private boolean prune(PriorityQueue<State> frontier, Comparator<State> order, long exploredSize) {
+	long keep = Long.MAX_VALUE;
+	if ( budget.getMaxFrontier() > -1 )
+	    keep = budget.getMaxFrontier() / 2;
+	if ( budget.getMaxBytes() > -1 )
+	    keep = Math.min(keep, (budget.getMaxBytes() / 2 - exploredSize * EXPLORED_NODE_BYTES) / FRONTIER_NODE_BYTES);
+	if ( keep < 1 )
+	    return false;
+
+	State[] nodes = frontier.toArray(new State[0]);
+	Arrays.sort(nodes, order);
+	frontier.clear();
+	for ( int i = 0; i < nodes.length && i < keep; i++ )
+	    frontier.add(nodes[i]);
+	pruned = true;
+	return true;
+    }
+}
@@ -0,0 +1,113 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+// Lookup table of the optimal solution of every 8-puzzle board
+// Holds one byte per permutation of the 9 cells, indexed by the permutation's rank
+// The low 5 bits of an entry are the board's distance to the goal state,
+// and the next 2 bits are the move code of a move that leads one step closer to the goal
+// Boards that cannot reach the goal state are marked UNREACHABLE
+// The table is generated once by a breadth first search from the goal state,
+// saved to a binary file, and memory-mapped on later runs
+
+public class DistanceTable {
+    // file the table is saved to, in the working directory
+    private static final String FILE_NAME = "table.bin";
+    // identifies the file format, changing the table layout must change this value
+    private static final int MAGIC = 0x44495354; // "DIST"
+
+    private static final int CELLS = 9;
+    // number of permutations of the 9 cells, 9!
+    private static final int PERMUTATIONS = 362880;
+    // FACTORIAL[i] is i!
+    private static final int[] FACTORIAL = {1, 1, 2, 6, 24, 120, 720, 5040, 40320};
+    // entry of a board that cannot reach the goal state
+    private static final int UNREACHABLE = 0xFF;
+    private static final int DISTANCE_MASK = 0x1F;
+    private static final int MOVE_SHIFT = 5;
+
+    // the table, indexed by permutation rank
+    private final ByteBuffer table;
+
+    private DistanceTable(ByteBuffer table) {
+	this.table = table;
+    }
+
+    // Holder class, so the table is loaded on first use and exactly once
+    private static class Holder {
+	static final DistanceTable INSTANCE = load();
+    }
+
+    // Returns the distance table, loading or generating it on first use
+    public static DistanceTable getInstance() {
+	return Holder.INSTANCE;
+    }
+
+    // Returns the number of moves on an optimal path from state to the goal state,
+    // or -1 if the goal state cannot be reached from state
+    public int distance(State state) {
+	int entry = table.get(rank(state)) & 0xFF;
+	return entry == UNREACHABLE ? -1 : entry & DISTANCE_MASK;
+    }
+
+    // Returns the move code of a move that brings state one step closer to the goal state
+    // Only meaningful if state is not the goal state and can reach it
+    public int bestMove(State state) {
+	return (table.get(rank(state)) >>> MOVE_SHIFT) & 0x3;
+    }
+
+    // Returns the rank of the permutation of tiles on the state's board, from 0 to 9! - 1
+    // The rank is the Lehmer code of the permutation read as a factorial base number
+    public static int rank(State state) {
+	int rank = 0;
+	int used = 0; // bit t is set once tile t has been seen
+	for ( int cell = 0; cell < CELLS; cell++ ) {
+	    int tile = state.tileAt(cell);
+	    // number of tiles smaller than tile that come after it
+	    int smallerAfter = tile - Integer.bitCount(used & ((1 << tile) - 1));
+	    rank += smallerAfter * FACTORIAL[CELLS - 1 - cell];
+	    used |= 1 << tile;
+	}
+	return rank;
+    }
+
+    // Maps the table from FILE_NAME, generating and saving it first if the file is missing or invalid
+    // If the file cannot be written the generated table is kept in memory only, see TableFile.load()
+    private static DistanceTable load() {
+	return new DistanceTable(TableFile.load(FILE_NAME, MAGIC, PERMUTATIONS, "distance table",
+						 DistanceTable::generate));
+    }
+
+    // Generates the table by breadth first search from the goal state
+    // Moves are reversible, so the first time a board is reached its distance from the goal
+    // is also its distance to the goal, and the inverse of the move that reached it leads back
+    private static byte[] generate() {
+	byte[] table = new byte[PERMUTATIONS];
+	Arrays.fill(table, (byte) UNREACHABLE);
+	ArrayDeque<State> queue = new ArrayDeque<State>();
+	State goal = new State();
+	table[rank(goal)] = 0;
+	queue.add(goal);
+
+	while ( !queue.isEmpty() ) {
+	    State current = queue.poll();
+	    int distance = table[rank(current)] & DISTANCE_MASK;
+	    boolean[] legal = current.legalMoves();
+	    for ( int move = 0; move < legal.length; move++ ) {
+		if ( legal[move] ) {
+		    // duplicate() keeps the start state's empty path, so no parent links are built up
+		    State next = current.duplicate();
+		    next.move(move);
+		    int rank = rank(next);
+		    if ( table[rank] == (byte) UNREACHABLE ) {
+			// move codes come in inverse pairs: up/down and left/right
+			int back = move ^ 1;
+			table[rank] = (byte) ((distance + 1) | (back << MOVE_SHIFT));
+			queue.add(next);
+		    }
+		}
+	    }
+	}
+	return table;
+    }
+}
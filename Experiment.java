@@ -1,65 +1,196 @@
-// Contains code for gathering statistics on A* and local beam search algorithms
-import java.util.ArrayList;
+// Contains code for gathering statistics on A*, IDA* and local beam search algorithms
+// Trials are spread over a ForkJoinPool, one accumulator per worker, merged at the end
+// Each trial randomizes its board with a seed derived from the trial number,
+// so the results do not depend on the number of threads or the order trials run in
+// The metrics of every solve can be exported as CSV or JSON lines with --csv FILE or --json FILE
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 public class Experiment {
 
-    public static void main(String[] args) {
-	if ( args.length > 0 && args[0].equals("2") ) 
-	    experiment2();
-	else
-	    experiment1();
+    // seed that the per-trial seeds are derived from
+    private static final long SEED = 112209913;
+
+    // number of worker threads, set by the --threads argument
+    private static int threads = Runtime.getRuntime().availableProcessors();
+    // where the metrics of every solve are written, null if they are not exported
+    private static PrintWriter statsOut = null;
+    // true to write the metrics as JSON lines, false for CSV
+    private static boolean statsJson = false;
+    // maxNodes limits of experiment 2, set by the --limits argument
+    private static int[] limits = parseLimits("200:4000:200");
+
+    // Arguments: [2|3] [--threads N] [--csv FILE | --json FILE] [--limits LIST]
+    // Runs experiment 2 or 3 if the first argument is 2 or 3, otherwise experiment 1
+    // --limits gives the maxNodes limits of experiment 2, see parseLimits()
+    public static void main(String[] args) throws InterruptedException, ExecutionException, FileNotFoundException {
+	for ( int i = 0; i < args.length - 1; i++ ) {
+	    if ( args[i].equals("--threads") )
+		threads = Integer.parseInt(args[i + 1]);
+	    else if ( args[i].equals("--limits") )
+		limits = parseLimits(args[i + 1]);
+	    else if ( args[i].equals("--csv") || args[i].equals("--json") ) {
+		statsOut = new PrintWriter(args[i + 1]);
+		statsJson = args[i].equals("--json");
+		if ( !statsJson )
+		    statsOut.println("experiment,trial,solver,maxNodes," + SearchStats.csvHeader());
+	    }
+	}
+	String experiment = args.length > 0 && (args[0].equals("2") || args[0].equals("3")) ? args[0] : "1";
+	try {
+	    if ( experiment.equals("2") )
+		experiment2(limits);
+	    else if ( experiment.equals("3") )
+		experiment3();
+	    else
+		experiment1();
+	}
+	finally {
+	    if ( statsOut != null )
+		statsOut.close();
+	}
+    }
+
+    // Runs one solver on a trial's board through the input search function and returns its solution
+    // Writes the solver's metrics to statsOut, if they are being exported
+    private static int[] run(String experiment, int trial, String solver, int maxNodes,
+			     Function<SearchStats, int[]> search) {
+	return run(experiment, trial, solver, maxNodes, new SearchStats(), search);
+    }
+
+    // Runs one solver on a trial's board as above, filling in the input metrics
+    private static int[] run(String experiment, int trial, String solver, int maxNodes, SearchStats stats,
+			     Function<SearchStats, int[]> search) {
+	int[] solution = search.apply(stats);
+	if ( statsOut != null ) {
+	    // PrintWriter is synchronized, so every record is written as a whole line
+	    if ( statsJson )
+		statsOut.println("{\"experiment\":" + experiment + ",\"trial\":" + trial + ",\"solver\":\"" + solver
+				 + "\",\"maxNodes\":" + maxNodes + "," + stats.toJsonFields() + "}");
+	    else
+		statsOut.println(experiment + "," + trial + "," + solver + "," + maxNodes + "," + stats.toCsv());
+	}
+	return solution;
+    }
+
+    // Returns the limits in a comma separated list of limits and ranges, in increasing order
+    // A range start:end:step stands for start, start + step, ... up to end, so 200:4000:200,5000 gives 21 limits
+    static int[] parseLimits(String list) {
+	IntStream.Builder limits = IntStream.builder();
+	for ( String item : list.split(",") ) {
+	    String[] range = item.trim().split(":");
+	    int start = Integer.parseInt(range[0]);
+	    int end = range.length > 1 ? Integer.parseInt(range[1]) : start;
+	    int step = range.length > 2 ? Math.max(Integer.parseInt(range[2]), 1) : 1;
+	    for ( int n = start; n <= end; n += step )
+		limits.add(n);
+	}
+	return limits.build().sorted().distinct().toArray();
+    }
+
+    // Returns the random number generator for the trial numbered by input
+    // Trial numbers are spread with a multiplicative hash so neighbouring trials get unrelated seeds
+    private static Random trialRandom(int trial) {
+	return new Random(SEED + trial * 0x9E3779B97F4A7C15L);
+    }
+
+    // Returns a board randomized with the trial's own random number generator
+    private static State randomBoard(int trial) {
+	return randomBoard(trial, 3, 100);
+    }
+
+    // Returns a board with dimension rows and columns, randomized by the input number of random moves
+    // with the trial's own random number generator
+    private static State randomBoard(int trial, int dimension, int steps) {
+	State board = new State(dimension);
+	board.randomize(steps, trialRandom(trial));
+	return board;
     }
 
     
+    // Per-worker accumulator for experiment 2
+    // successes[i][j] is the number of trials with the i-th maxNodes limit solved by solver j
+    private static class LimitTally {
+	final int[][] successes;
+
+	LimitTally(int numLimits, int numSolvers) {
+	    successes = new int[numLimits][numSolvers];
+	}
+
+	// Counts a trial of solver j, whose search is described by stats, under every limit it would succeed under
+	void add(int[] limits, int j, SearchStats stats) {
+	    if ( stats.getMoves() < 0 )
+		return;
+	    for ( int i = 0; i < limits.length; i++ ) {
+		if ( stats.getNodesNeeded() <= limits[i] )
+		    successes[i][j] += 1;
+	    }
+	}
+
+	void merge(LimitTally other) {
+	    for ( int i = 0; i < successes.length; i++ ) {
+		for ( int j = 0; j < successes[i].length; j++ )
+		    successes[i][j] += other.successes[i][j];
+	    }
+	}
+    }
+
     // experiment 2
     // Collect data by varying maxNodes limit
-    public static void experiment2() {
+    // The limit only stops a search, so each solver runs once per board under the highest limit,
+    // and succeeds under every limit of at least the number of nodes it needed, see SearchStats.nodesNeeded
+    // The success fractions for any number of limits therefore cost one search per board and solver
+    public static void experiment2(int[] limits) throws InterruptedException, ExecutionException {
 	//public static void main(String[] args) {
+	final int numLimits = limits.length;
+	final int numTrials = 200; // experiments performed for each maxNodes limit
+	final int maxLimit = limits[numLimits - 1];
 	
 	// set up matrix to contain data
-	double[][] data = new double[20][4];
-	int[] solution;
+	double[][] data = new double[numLimits][4];
 	
 	// initialize n = max nodes
 	for ( int i = 0; i < data.length; i++ ) 
-	    data[i][0] = (i+1) * 200;
-
-	// initialize data matrix to 0 first
-	for ( int i = 0; i < data.length; i++ ) {
-	    for ( int j = 1; j < data[i].length; j++ )
-		data[i][j] = 0;
-	}
+	    data[i][0] = limits[i];
 
 	// run trials
-	for ( int limit = 200; limit <= 4000; limit += 200 ) {
-	    // perform 200 experiments for each maxNodes limit
-	    for ( int i = 0; i < 200; i++ ) {
-		// randomize a board
-		State board = new State();
-		board.randomize(100);
+	// the trial number alone picks the board, so every limit is tried on the same boards
+	ForkJoinPool pool = new ForkJoinPool(threads);
+	LimitTally tally = pool.submit(() -> IntStream.range(0, numTrials).parallel().collect(
+	    () -> new LimitTally(numLimits, 3),
+	    (LimitTally t, int trial) -> {
+		State board = randomBoard(trial);
 
 		// solve using A* h1
-		solution = Solve.solveAStar(board, "h1", limit);
-		if (solution[0] > -1) // search did not fail
-		    data[limit / 200 - 1][1] += 1;
+		SearchStats h1Stats = new SearchStats();
+		run("2", trial, "astar-h1", maxLimit, h1Stats,
+		    stats -> Solve.solveAStar(board, Heuristic.H1, maxLimit, new HeapFrontier(), stats));
+		t.add(limits, 0, h1Stats);
 
 		// solve using A* h2
-		solution = Solve.solveAStar(board, "h2", limit);
-		if (solution[0] > -1) // search did not fail
-		    data[limit / 200 - 1][2] += 1;
+		SearchStats h2Stats = new SearchStats();
+		run("2", trial, "astar-h2", maxLimit, h2Stats,
+		    stats -> Solve.solveAStar(board, Heuristic.H2, maxLimit, new HeapFrontier(), stats));
+		t.add(limits, 1, h2Stats);
 
 		// solve using local beam search k = 50
-		solution = Solve.solveLocalBeamSearch(board, 50, limit);
-		if (solution[0] > -1) // search did not fail
-		    data[limit / 200 - 1][3] += 1;
-	    }
-	}
+		SearchStats beamStats = new SearchStats();
+		run("2", trial, "beam-50", maxLimit, beamStats,
+		    stats -> Solve.solveLocalBeamSearch(board, 50, maxLimit, stats));
+		t.add(limits, 2, beamStats);
+	    },
+	    LimitTally::merge)).get();
+	pool.shutdown();
 
 	// compute fractions
-	
 	for ( int i = 0; i < data.length; i++ ) {
 	    for ( int j = 1; j < data[0].length; j++ )
-		data[i][j] = data[i][j] / 200;
+		data[i][j] = (double) tally.successes[i][j - 1] / numTrials;
 	}
 
 	// print data matrix
@@ -70,56 +201,181 @@ public class Experiment {
 	}
     }
 
+    // Per-worker accumulator for experiment 1
+    // Indexed by d = number of steps to solution
+    // trials[d] counts the solutions of length d found by any solver
+    // nodes[d][j] and solved[d][j] are the total nodes considered and the number of solutions of length d for solver j
+    private static class DepthTally {
+	final int[] trials;
+	final long[][] nodes;
+	final int[][] solved;
+
+	DepthTally(int maxDepth, int numSolvers) {
+	    trials = new int[maxDepth];
+	    nodes = new long[maxDepth][numSolvers];
+	    solved = new int[maxDepth][numSolvers];
+	}
+
+	// Records a solution found by solver j
+	void add(int j, int[] solution) {
+	    trials[solution[0]] += 1; // n = number of trials
+	    nodes[solution[0]][j] += solution[1];
+	    solved[solution[0]][j] += 1;
+	}
+
+	void merge(DepthTally other) {
+	    for ( int d = 0; d < trials.length; d++ ) {
+		trials[d] += other.trials[d];
+		for ( int j = 0; j < nodes[d].length; j++ ) {
+		    nodes[d][j] += other.nodes[d][j];
+		    solved[d][j] += other.solved[d][j];
+		}
+	    }
+	}
+    }
+
+    // Per-worker accumulator for experiment 3
+    // Indexed by i = the i-th number of randomizing moves and j = solver
+    // solved[i][j] counts the solutions found, and the other arrays total over them the solution length,
+    // the nodes expanded, the most nodes held in memory at once, and the wall clock time
+    private static class ScaleTally {
+	final int[][] solved;
+	final long[][] moves;
+	final long[][] expanded;
+	final long[][] stored;
+	final long[][] wallNanos;
+
+	ScaleTally(int numWalks, int numSolvers) {
+	    solved = new int[numWalks][numSolvers];
+	    moves = new long[numWalks][numSolvers];
+	    expanded = new long[numWalks][numSolvers];
+	    stored = new long[numWalks][numSolvers];
+	    wallNanos = new long[numWalks][numSolvers];
+	}
+
+	// Records the metrics of solver j on a board randomized with the i-th number of moves
+	void add(int i, int j, int[] solution, SearchStats stats) {
+	    if ( solution[0] < 0 )
+		return;
+	    solved[i][j] += 1;
+	    moves[i][j] += solution[0];
+	    expanded[i][j] += stats.getNodesExpanded();
+	    stored[i][j] += stats.getPeakFrontierSize() + stats.getPeakExploredSize();
+	    wallNanos[i][j] += stats.getWallNanos();
+	}
+
+	void merge(ScaleTally other) {
+	    for ( int i = 0; i < solved.length; i++ ) {
+		for ( int j = 0; j < solved[i].length; j++ ) {
+		    solved[i][j] += other.solved[i][j];
+		    moves[i][j] += other.moves[i][j];
+		    expanded[i][j] += other.expanded[i][j];
+		    stored[i][j] += other.stored[i][j];
+		    wallNanos[i][j] += other.wallNanos[i][j];
+		}
+	    }
+	}
+    }
+
+    // Experiment 3
+    // Scales up to the 15-puzzle, comparing A* with IDA* as the boards get harder
+    // A* keeps every node it generates, so its node limit stands in for a memory limit,
+    // while IDA* only keeps the current path and is limited by time alone
+    public static void experiment3() throws InterruptedException, ExecutionException {
+	final int numWalks = 8;
+	final int numTrials = 20; // boards randomized with each number of moves
+	final int aStarLimit = 2000000;
+	final int idaStarLimit = 50000000;
+
+	// task t runs trial t % numTrials on a board randomized with (t / numTrials + 1) * 20 moves
+	ForkJoinPool pool = new ForkJoinPool(threads);
+	ScaleTally tally = pool.submit(() -> IntStream.range(0, numWalks * numTrials).parallel().collect(
+	    () -> new ScaleTally(numWalks, 2),
+	    (ScaleTally t, int task) -> {
+		int walk = task / numTrials;
+		int trial = task % numTrials;
+		State board = randomBoard(trial, 4, (walk + 1) * 20);
+		SearchStats stats;
+
+		// solve using A* with linear conflicts
+		stats = new SearchStats();
+		t.add(walk, 0, run("3", trial, "astar-lc", aStarLimit, stats,
+				   s -> Solve.solveAStar(board, Heuristic.LC, aStarLimit, new BucketFrontier(), s)), stats);
+		// solve using IDA* with linear conflicts
+		stats = new SearchStats();
+		t.add(walk, 1, run("3", trial, "ida-lc", idaStarLimit, stats,
+				   s -> Solve.solveIDAStar(board, Heuristic.LC, idaStarLimit, s)), stats);
+	    },
+	    ScaleTally::merge)).get();
+	pool.shutdown();
+
+	// print data matrix
+	// columns: randomizing moves, then for A* and for IDA*: boards solved, average solution length,
+	// average nodes expanded, average peak nodes held in memory and average milliseconds per solve
+	for ( int i = 0; i < numWalks; i++ ) {
+	    System.out.print((i + 1) * 20 + "\t");
+	    for ( int j = 0; j < 2; j++ ) {
+		int solved = tally.solved[i][j];
+		System.out.print(solved + "\t");
+		if ( solved == 0 ) {
+		    System.out.print("-\t-\t-\t-\t");
+		    continue;
+		}
+		System.out.print(Math.round(10.0 * tally.moves[i][j] / solved) / 10.0 + "\t"
+				 + tally.expanded[i][j] / solved + "\t"
+				 + tally.stored[i][j] / solved + "\t"
+				 + tally.wallNanos[i][j] / solved / 1000000 + "\t");
+	    }
+	    System.out.println();
+	}
+    }
+
     // Experiment 1
     // Collect data on number of nodes searched
     //public static void main(String[] args) {
-    public static void experiment1() {
+    public static void experiment1() throws InterruptedException, ExecutionException {
+	final int numSolvers = 6;
 	// set up matrix to contain data
-	Object[][] data = new Object[50][5];
-	// solution[0] = numMoves, solution[1] = nodes considered
-	int[] solution; 
-	// initialize n = number of trials performed to 0
-	for ( int i = 0; i < data.length; i++ )
-	    data[i][0] = 0;
-	// initialize d = number of steps to solution
-	for ( int i = 0; i < data.length; i++ )
-	    data[i][1] = i;
-	// initialize columns for nodes generated to an array of Integers
-	for ( int i = 0; i < data.length; i++ ) {
-	    for ( int j = 2; j < 5; j++ ) {
-		data[i][j] = new ArrayList<Integer>();
-	    }
-	}
-	
+	// columns: n = number of trials, d = number of steps to solution,
+	// then average nodes considered by A* h1, A* h2, A* pdb, local beam search, A* lc and A* wd
+	Object[][] data = new Object[50][2 + numSolvers];
+
 	// perform 1000 experiments
-	for ( int i = 0; i < 1000; i++ ) {
-	    // randomize a board	    
-	    State board = new State();
-	    board.randomize(100);
-	    // solve using A* h1
-	    solution = Solve.solveAStar(board, "h1", -1);
-	    data[solution[0]][0] = (Integer) data[solution[0]][0] + 1; // n = number of trials
-	    ((ArrayList<Integer>) data[solution[0]][2]).add(solution[1]);
-
-	    // solve using A* h2
-	    solution = Solve.solveAStar(board, "h2", -1);
-	    data[solution[0]][0] = (Integer) data[solution[0]][0] + 1; // n = number of trials
-	    ((ArrayList<Integer>) data[solution[0]][3]).add(solution[1]);
-
-	    // solve using local beam search k = 50
-	    solution = Solve.solveLocalBeamSearch(board, 50, -1);
-	    data[solution[0]][0] = (Integer) data[solution[0]][0] + 1; // n = number of trials
-	    ((ArrayList<Integer>) data[solution[0]][4]).add(solution[1]);
-	}
+	ForkJoinPool pool = new ForkJoinPool(threads);
+	DepthTally tally = pool.submit(() -> IntStream.range(0, 1000).parallel().collect(
+	    () -> new DepthTally(data.length, numSolvers),
+	    (DepthTally t, int trial) -> {
+		// randomize a board	    
+		State board = randomBoard(trial);
+		// solve using A* h1
+		t.add(0, run("1", trial, "astar-h1", -1,
+			     stats -> Solve.solveAStar(board, Heuristic.H1, -1, new HeapFrontier(), stats)));
+		// solve using A* h2
+		t.add(1, run("1", trial, "astar-h2", -1,
+			     stats -> Solve.solveAStar(board, Heuristic.H2, -1, new HeapFrontier(), stats)));
+		// solve using A* with the pattern database heuristic
+		t.add(2, run("1", trial, "astar-pdb", -1,
+			     stats -> Solve.solveAStar(board, Heuristic.PDB, -1, new HeapFrontier(), stats)));
+		// solve using local beam search k = 50
+		t.add(3, run("1", trial, "beam-50", -1,
+			     stats -> Solve.solveLocalBeamSearch(board, 50, -1, stats)));
+		// solve using A* with linear conflicts
+		t.add(4, run("1", trial, "astar-lc", -1,
+			     stats -> Solve.solveAStar(board, Heuristic.LC, -1, new HeapFrontier(), stats)));
+		// solve using A* with walking distance
+		t.add(5, run("1", trial, "astar-wd", -1,
+			     stats -> Solve.solveAStar(board, Heuristic.WD, -1, new HeapFrontier(), stats)));
+	    },
+	    DepthTally::merge)).get();
+	pool.shutdown();
 
 	// get averages from data
 	for ( int i = 0; i < data.length; i++ ) {
-	    for ( int j = 2; j < 5; j++ ) {
-		ArrayList<Integer> nodeList = ((ArrayList<Integer>) data[i][j]);
-		int avg = 0;
-		for ( int k = 0; k < nodeList.size(); k++ ) 
-		    avg += nodeList.get(k);
-		data[i][j] = (int) ((double) avg / nodeList.size());
+	    data[i][0] = tally.trials[i];
+	    data[i][1] = i;
+	    for ( int j = 0; j < numSolvers; j++ ) {
+		int solved = tally.solved[i][j];
+		data[i][j + 2] = solved == 0 ? 0 : (int) ((double) tally.nodes[i][j] / solved);
 	    }
 	}
 
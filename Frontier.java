@@ -0,0 +1,30 @@
+// Priority queue of states waiting to be expanded by a search algorithm
+// States come out in increasing order of f(n) = g(n) + h(n)
+
+public interface Frontier {
+
+    // Adds a state to the frontier
+    void add(State state);
+
+    // Removes and returns a state with the lowest f(n), or null if the frontier is empty
+    State poll();
+
+    // Returns the number of states in the frontier
+    int size();
+
+    // Returns true if the frontier has no states
+    boolean isEmpty();
+
+    // Removes every state from the frontier
+    void clear();
+
+    // Returns a new, empty frontier of the type named by input
+    // "heap" is a binary heap, "bucket" is an array of buckets indexed by f(n)
+    static Frontier create(String type) {
+	if ( type.equals("heap") )
+	    return new HeapFrontier();
+	else if ( type.equals("bucket") )
+	    return new BucketFrontier();
+	throw new IllegalArgumentException("Unknown queue type: " + type);
+    }
+}
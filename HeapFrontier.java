@@ -0,0 +1,28 @@
+import java.util.PriorityQueue;
+
+// Frontier backed by a binary heap
+// add and poll take O(log n) time
+
+public class HeapFrontier implements Frontier {
+    private final PriorityQueue<State> heap = new PriorityQueue<State>();
+
+    public void add(State state) {
+	heap.add(state);
+    }
+
+    public State poll() {
+	return heap.poll();
+    }
+
+    public int size() {
+	return heap.size();
+    }
+
+    public boolean isEmpty() {
+	return heap.isEmpty();
+    }
+
+    public void clear() {
+	heap.clear();
+    }
+}
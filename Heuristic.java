@@ -0,0 +1,73 @@
+// A heuristic h(n) available to the search algorithms
+// estimate() computes h(n) from scratch, and update() is called after every move so that
+// heuristics that can account for a single tile's move do not have to recompute h(n)
+// toString() is the name used for the heuristic in the command file
+// Heuristics are selected by name through a registry that holds the ones below,
+// and further heuristics can be plugged in with register()
+
+public interface Heuristic {
+    // number of misplaced tiles
+    TileCostHeuristic H1 = new TileCostHeuristic("h1") {
+	protected int tileCost(int dimension, int tile, int cell) {
+	    return tile == cell ? 0 : 1;
+	}
+	public int estimate(State state) {
+	    return state.calculateH1();
+	}
+    };
+    // sum of the Manhattan distances of the tiles from their goal positions
+    TileCostHeuristic H2 = new TileCostHeuristic("h2") {
+	protected int tileCost(int dimension, int tile, int cell) {
+	    return manhattan(dimension, tile, cell);
+	}
+	public int estimate(State state) {
+	    return state.calculateH2();
+	}
+    };
+    // Manhattan distance plus linear conflicts, see LinearConflict
+    Heuristic LC = new LinearConflict();
+    // walking distance, see WalkingDistance
+    Heuristic WD = new WalkingDistance();
+    // sum of the additive disjoint pattern database values, see PatternDatabase
+    Heuristic PDB = new Heuristic() {
+	public boolean covers(int dimension) {
+	    return dimension == 3;
+	}
+	public int estimate(State state) {
+	    if ( !covers(state.getDimension()) )
+		throw new IllegalArgumentException("The pdb heuristic only covers the 8-puzzle");
+	    return PatternDatabase.getInstance().estimate(state);
+	}
+	public String toString() {
+	    return "pdb";
+	}
+    };
+
+    // Returns the heuristic value of state, computed from scratch
+    // Throws IllegalArgumentException if the heuristic does not cover the size of state's board
+    int estimate(State state);
+
+    // Returns true if the heuristic can be computed on boards with dimension rows and columns
+    // Every size is covered unless overridden
+    default boolean covers(int dimension) {
+	return true;
+    }
+
+    // Returns the heuristic value of state after tile moved from oldCell to newCell,
+    // given the heuristic value estimatedCost from before the move
+    // Called after the move has been made on state
+    // Recomputes the heuristic value unless overridden
+    default int update(State state, int estimatedCost, int tile, int oldCell, int newCell) {
+	return estimate(state);
+    }
+
+    // Returns the heuristic named by input, as written in the command file
+    public static Heuristic forName(String name) {
+	return HeuristicRegistry.get(name);
+    }
+
+    // Makes heuristic selectable by its name, replacing any heuristic registered under the same name
+    public static void register(Heuristic heuristic) {
+	HeuristicRegistry.put(heuristic);
+    }
+}
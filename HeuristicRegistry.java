@@ -0,0 +1,33 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Heuristics that can be selected by name, see Heuristic.forName() and Heuristic.register()
+// Names are matched ignoring case
+
+class HeuristicRegistry {
+    private static final Map<String, Heuristic> HEURISTICS = new ConcurrentHashMap<String, Heuristic>();
+    static {
+	put(Heuristic.H1);
+	put(Heuristic.H2);
+	put(Heuristic.LC);
+	put(Heuristic.WD);
+	put(Heuristic.PDB);
+    }
+
+    private HeuristicRegistry() {
+    }
+
+    // Returns the heuristic registered under name
+    // Throws IllegalArgumentException if there is none
+    static Heuristic get(String name) {
+	Heuristic heuristic = HEURISTICS.get(name.toLowerCase());
+	if ( heuristic == null )
+	    throw new IllegalArgumentException("Unknown heuristic: " + name);
+	return heuristic;
+    }
+
+    // Registers heuristic under the name given by its toString()
+    static void put(Heuristic heuristic) {
+	HEURISTICS.put(heuristic.toString().toLowerCase(), heuristic);
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Solves sliding puzzles using iterative deepening A*
+// Runs depth first searches bounded by f(n) = g(n) + h(n), raising the bound to the smallest
+// f(n) that exceeded it after each unsuccessful search
+// Works on a single board, making each move in place and undoing it with the inverse move,
+// so memory use is proportional to the search depth and no objects are created per node
+
+public class IDAStar {
+    // search results besides a new bound
+    private static final int FOUND = -1;
+    private static final int ABORTED = -2;
+    private static final int NOT_FOUND = Integer.MAX_VALUE;
+    // most moves needed to solve any solvable board, indexed by dimension
+    // 6 for 2x2, 31 for 3x3 and 80 for 4x4, so a bound above this means the goal cannot be reached
+    // For 5x5 only an upper bound is known, 210 moves (Karlemo and Ostergard)
+    private static final int[] MAX_BOUND = {0, 0, 6, 31, 80, 210};
+
+    // the board being searched, moved in place
+    private final State board;
+    private final int maxNodes;
+    private final SearchStats stats;
+    // moves[i] is the move code made at depth i of the current path
+    private int[] moves;
+    // deepest path searched so far, in moves
+    private int maxDepth = 0;
+    private int numStatesSeen;
+
+    // Takes as input the start state, the heuristic to use, maximum number of nodes to consider,
+    // and the metrics to fill in
+    // Does not modify startState
+    public IDAStar(State startState, Heuristic heuristic, int maxNodes, SearchStats stats) {
+	board = startState.duplicate();
+	board.setPathCost(0);
+	board.evaluate(heuristic);
+	this.maxNodes = maxNodes;
+	this.stats = stats;
+	numStatesSeen = 0;
+    }
+
+    // Runs the search
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal
+    public int[] solve() {
+	int bound = board.getEstimatedCost();
+	while ( bound <= MAX_BOUND[board.getDimension()] ) {
+	    moves = new int[bound + 1];
+	    int result = search(0, bound, -1);
+	    // the path being searched, one recursive call per move, is the only frontier IDA* keeps
+	    stats.updatePeaks(maxDepth, 0);
+	    if ( result == FOUND ) {
+		int depth = board.getPathCost();
+		List<String> path = new ArrayList<String>(depth);
+		for ( int i = 0; i < depth; i++ )
+		    path.add(State.moveName(moves[i]));
+		Solve.printMoves(board, path, stats);
+		return new int[] {depth, numStatesSeen};
+	    }
+	    if ( result == ABORTED ) {
+		String stopReason = stats.stopReason();
+		Solve.report(stats, stopReason != null ? stopReason : "Reach maximum number of nodes: " + maxNodes);
+		return new int[] {-1, numStatesSeen};
+	    }
+	    bound = result;
+	}
+	Solve.report(stats, "No solution found.");
+	return new int[] {-1, numStatesSeen};
+    }
+
+    // Searches depth first below the current board, which is g moves from the start
+    // lastMove is the move that led to the current board, -1 at the start
+    // Returns FOUND if the goal was reached, leaving the board at the goal with path cost g,
+    // ABORTED if the node limit was reached or the search must stop, and otherwise the smallest f(n) above bound
+    private int search(int g, int bound, int lastMove) {
+	if ( g > maxDepth )
+	    maxDepth = g;
+	int f = g + board.getEstimatedCost();
+	if ( f > bound )
+	    return f;
+	if ( board.isGoal() ) {
+	    board.setPathCost(g);
+	    return FOUND;
+	}
+
+	int minExceeded = NOT_FOUND;
+	stats.nodesExpanded += 1;
+	for ( int move : board.moves() ) {
+	    // undoing the previous move can never be part of an optimal path
+	    if ( lastMove >= 0 && move == (lastMove ^ 1) )
+		continue;
+	    numStatesSeen += 1;
+	    stats.nodesGenerated += 1;
+	    stats.nodesNeeded = numStatesSeen;
+	    if ( (maxNodes > -1 && numStatesSeen > maxNodes) || stats.stopReason() != null )
+		return ABORTED;
+
+	    board.move(move);
+	    moves[g] = move;
+	    int result = search(g + 1, bound, move);
+	    if ( result == FOUND )
+		return FOUND;
+	    board.move(move ^ 1); // undo the move, move codes come in inverse pairs
+	    if ( result == ABORTED )
+		return ABORTED;
+	    minExceeded = Math.min(minExceeded, result);
+	}
+	return minExceeded;
+    }
+}
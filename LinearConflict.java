@@ -0,0 +1,82 @@
+// Manhattan distance plus linear conflicts
+// Two tiles are in linear conflict when both are in their goal row (or column) but in the wrong
+// order, so one of them has to leave the line and come back, two moves more than its Manhattan distance
+// Rows and columns are counted separately, since a tile that leaves its row does not leave its column
+
+public class LinearConflict extends TileCostHeuristic {
+
+    public LinearConflict() {
+	super("lc");
+    }
+
+    protected int tileCost(int dimension, int tile, int cell) {
+	return manhattan(dimension, tile, cell);
+    }
+
+    public int estimate(State state) {
+	return state.calculateH2() + 2 * linearConflicts(state);
+    }
+
+    // The Manhattan part changes by a table lookup, and the conflicts only change in the two lines
+    // the tile moved between: the rows for a vertical move, the columns for a horizontal one
+    public int update(State state, int estimatedCost, int tile, int oldCell, int newCell) {
+	int dimension = state.getDimension();
+	long after = state.getPackedBoard();
+	long afterHigh = state.getPackedBoardHigh();
+	// the board before the move has the tile back at oldCell and the blank at newCell
+	long before = State.moveTile(after, dimension, tile, newCell, oldCell);
+	long beforeHigh = State.moveTileHigh(afterHigh, dimension, tile, newCell, oldCell);
+	boolean rows = oldCell % dimension == newCell % dimension;
+	int oldLine = rows ? oldCell / dimension : oldCell % dimension;
+	int newLine = rows ? newCell / dimension : newCell % dimension;
+	int conflicts = lineConflicts(after, afterHigh, dimension, oldLine, rows)
+	    - lineConflicts(before, beforeHigh, dimension, oldLine, rows)
+	    + lineConflicts(after, afterHigh, dimension, newLine, rows)
+	    - lineConflicts(before, beforeHigh, dimension, newLine, rows);
+	return super.update(state, estimatedCost, tile, oldCell, newCell) + 2 * conflicts;
+    }
+
+    // Returns the number of linear conflicts on state's board
+    // See lineConflicts()
+    private static int linearConflicts(State state) {
+	int dimension = state.getDimension();
+	long board = state.getPackedBoard();
+	long boardHigh = state.getPackedBoardHigh();
+	int conflicts = 0;
+	for ( int line = 0; line < dimension; line++ )
+	    conflicts += lineConflicts(board, boardHigh, dimension, line, true)
+		+ lineConflicts(board, boardHigh, dimension, line, false);
+	return conflicts;
+    }
+
+    // Returns the number of linear conflicts in one row or column of the packed board with halves board and boardHigh
+    // The tiles in the line whose goal position is also in the line have to end up in goal order,
+    // so all but the longest run of them already in goal order have to leave the line and come back,
+    // which takes two moves more than their Manhattan distance
+    // Counting the tiles to remove rather than the pairs in conflict keeps the heuristic admissible
+    // when a tile is in conflict with several others
+    // The longest run is found by patience sorting, with the smallest goal position that ends a run
+    // of each length kept in 4 bits of tails, so this is called on every move without allocating
+    private static int lineConflicts(long board, long boardHigh, int dimension, int line, boolean row) {
+	int count = 0; // tiles that belong in the line
+	int runs = 0; // length of the longest run in goal order
+	int tails = 0;
+	for ( int i = 0; i < dimension; i++ ) {
+	    int cell = row ? line * dimension + i : i * dimension + line;
+	    int tile = State.tileAt(board, boardHigh, dimension, cell);
+	    if ( tile == 0 || (row ? tile / dimension : tile % dimension) != line )
+		continue;
+	    // goal position of the tile along the line
+	    int goal = row ? tile % dimension : tile / dimension;
+	    count += 1;
+	    // the tile extends the longest run ending before its goal position
+	    int length = 0;
+	    while ( length < runs && ((tails >>> (length * 4)) & 0xF) < goal )
+		length += 1;
+	    tails = (tails & ~(0xF << (length * 4))) | (goal << (length * 4));
+	    if ( length == runs )
+		runs += 1;
+	}
+	return count - runs;
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.Arrays;
+
+// Set of long values stored in a single open-addressing table
+// Used as the explored set of the search algorithms, keyed on packed boards
+// Keys are stored directly in a long[] array, so no boxing or per-entry objects are needed
+// A key can also be a pair of longs, the two halves of the packed board of a 5x5 board; a single
+// long key is the pair with a high half of 0
+
+public class LongHashSet {
+    // value marking an unused slot
+    // 0 is never a valid packed board, nor the low half of one, since the blank is the only 0 tile
+    // and every board has a nonzero tile in its first two cells
+    private static final long EMPTY = 0;
+    // the table is grown when it becomes more than half full
+    private static final int MIN_CAPACITY = 16;
+
+    // hash table, its length is always a power of two
+    private long[] keys;
+    // highs[i] is the high half of keys[i], null until a key with a nonzero high half is added
+    private long[] highs;
+    // keys.length - 1, used to wrap probe positions
+    private int mask;
+    private int size;
+
+    // Default Constructor
+    // Creates an empty set with a small initial capacity
+    public LongHashSet() {
+	this(MIN_CAPACITY);
+    }
+
+    // Overloaded Constructor
+    // Creates an empty set able to hold expectedSize keys without growing
+    public LongHashSet(int expectedSize) {
+	int capacity = MIN_CAPACITY;
+	while ( capacity < expectedSize * 2 )
+	    capacity <<= 1;
+	keys = new long[capacity];
+	mask = capacity - 1;
+	size = 0;
+    }
+
+    // Returns true if key is in the set
+    public boolean contains(long key) {
+	return contains(key, 0);
+    }
+
+    // Returns true if the key with halves key and high is in the set
+    public boolean contains(long key, long high) {
+	int slot = slot(key, high);
+	while ( keys[slot] != EMPTY ) {
+	    if ( keys[slot] == key && highAt(slot) == high )
+		return true;
+	    slot = (slot + 1) & mask; // linear probing
+	}
+	return false;
+    }
+
+    // Adds key to the set
+    // Returns true if key was not already in the set
+    public boolean add(long key) {
+	return add(key, 0);
+    }
+
+    // Adds the key with halves key and high to the set
+    // Returns true if it was not already in the set
+    public boolean add(long key, long high) {
+	if ( key == EMPTY )
+	    throw new IllegalArgumentException("0 cannot be stored in a LongHashSet");
+	if ( high != 0 && highs == null )
+	    highs = new long[keys.length];
+	int slot = slot(key, high);
+	while ( keys[slot] != EMPTY ) {
+	    if ( keys[slot] == key && highAt(slot) == high )
+		return false;
+	    slot = (slot + 1) & mask;
+	}
+	keys[slot] = key;
+	if ( highs != null )
+	    highs[slot] = high;
+	size += 1;
+	if ( size * 2 > keys.length )
+	    grow();
+	return true;
+    }
+
+    // Returns the number of keys in the set
+    public int size() {
+	return size;
+    }
+
+    // Returns true if the set has no keys
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    // Removes every key from the set, keeping the allocated table
+    public void clear() {
+	Arrays.fill(keys, EMPTY);
+	if ( highs != null )
+	    Arrays.fill(highs, 0);
+	size = 0;
+    }
+
+    // Returns the table slot where probing for key starts
+    // Packed boards differ mostly in their low bits, so the key is mixed before masking
+    // A high half of 0 leaves the slot of the low half unchanged
+    private int slot(long key, long high) {
+	return (int) (State.mix(key, high) >>> 32) & mask;
+    }
+
+    // Returns the high half of the key in slot
+    private long highAt(int slot) {
+	return highs == null ? 0 : highs[slot];
+    }
+
+    // Doubles the table and reinserts every key
+    private void grow() {
+	long[] oldKeys = keys;
+	long[] oldHighs = highs;
+	keys = new long[oldKeys.length * 2];
+	highs = oldHighs == null ? null : new long[keys.length];
+	mask = keys.length - 1;
+	for ( int i = 0; i < oldKeys.length; i++ ) {
+	    if ( oldKeys[i] != EMPTY ) {
+		long high = oldHighs == null ? 0 : oldHighs[i];
+		int slot = slot(oldKeys[i], high);
+		while ( keys[slot] != EMPTY )
+		    slot = (slot + 1) & mask;
+		keys[slot] = oldKeys[i];
+		if ( highs != null )
+		    highs[slot] = high;
+	    }
+	}
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.Arrays;
+
+// Map from long keys to int values stored in open-addressing tables
+// Used to remember the best path cost g(n) found for each packed board
+// Keys and values are stored in parallel primitive arrays, so no boxing or per-entry objects are needed
+// A key can also be a pair of longs, as in LongHashSet
+
+public class LongIntHashMap {
+    // key marking an unused slot
+    // 0 is never a valid packed board, nor the low half of one, since the blank is the only 0 tile
+    // and every board has a nonzero tile in its first two cells
+    private static final long EMPTY = 0;
+    // the table is grown when it becomes more than half full
+    private static final int MIN_CAPACITY = 16;
+
+    // hash table, its length is always a power of two
+    private long[] keys;
+    // highs[i] is the high half of keys[i], null until a key with a nonzero high half is added
+    private long[] highs;
+    // values[i] is the value of keys[i]
+    private int[] values;
+    // keys.length - 1, used to wrap probe positions
+    private int mask;
+    private int size;
+
+    // Default Constructor
+    // Creates an empty map with a small initial capacity
+    public LongIntHashMap() {
+	this(MIN_CAPACITY);
+    }
+
+    // Overloaded Constructor
+    // Creates an empty map able to hold expectedSize keys without growing
+    public LongIntHashMap(int expectedSize) {
+	int capacity = MIN_CAPACITY;
+	while ( capacity < expectedSize * 2 )
+	    capacity <<= 1;
+	keys = new long[capacity];
+	values = new int[capacity];
+	mask = capacity - 1;
+	size = 0;
+    }
+
+    // Returns the value of key, or defaultValue if key is not in the map
+    public int get(long key, int defaultValue) {
+	return get(key, 0, defaultValue);
+    }
+
+    // Returns the value of the key with halves key and high, or defaultValue if it is not in the map
+    public int get(long key, long high, int defaultValue) {
+	int slot = slot(key, high);
+	while ( keys[slot] != EMPTY ) {
+	    if ( keys[slot] == key && highAt(slot) == high )
+		return values[slot];
+	    slot = (slot + 1) & mask; // linear probing
+	}
+	return defaultValue;
+    }
+
+    // Returns true if key is in the map
+    public boolean containsKey(long key) {
+	int slot = slot(key, 0);
+	while ( keys[slot] != EMPTY ) {
+	    if ( keys[slot] == key && highAt(slot) == 0 )
+		return true;
+	    slot = (slot + 1) & mask;
+	}
+	return false;
+    }
+
+    // Sets the value of key, adding key to the map if it is not already there
+    public void put(long key, int value) {
+	put(key, 0, value);
+    }
+
+    // Sets the value of the key with halves key and high, adding it to the map if it is not already there
+    public void put(long key, long high, int value) {
+	if ( key == EMPTY )
+	    throw new IllegalArgumentException("0 cannot be stored in a LongIntHashMap");
+	if ( high != 0 && highs == null )
+	    highs = new long[keys.length];
+	int slot = slot(key, high);
+	while ( keys[slot] != EMPTY ) {
+	    if ( keys[slot] == key && highAt(slot) == high ) {
+		values[slot] = value;
+		return;
+	    }
+	    slot = (slot + 1) & mask;
+	}
+	keys[slot] = key;
+	if ( highs != null )
+	    highs[slot] = high;
+	values[slot] = value;
+	size += 1;
+	if ( size * 2 > keys.length )
+	    grow();
+    }
+
+    // Returns the number of keys in the map
+    public int size() {
+	return size;
+    }
+
+    // Returns true if the map has no keys
+    public boolean isEmpty() {
+	return size == 0;
+    }
+
+    // Removes every key from the map, keeping the allocated tables
+    public void clear() {
+	Arrays.fill(keys, EMPTY);
+	if ( highs != null )
+	    Arrays.fill(highs, 0);
+	size = 0;
+    }
+
+    // Returns the table slot where probing for key starts
+    // Packed boards differ mostly in their low bits, so the key is mixed before masking
+    // A high half of 0 leaves the slot of the low half unchanged
+    private int slot(long key, long high) {
+	return (int) (State.mix(key, high) >>> 32) & mask;
+    }
+
+    // Returns the high half of the key in slot
+    private long highAt(int slot) {
+	return highs == null ? 0 : highs[slot];
+    }
+
+    // Doubles the tables and reinserts every key
+    private void grow() {
+	long[] oldKeys = keys;
+	long[] oldHighs = highs;
+	int[] oldValues = values;
+	keys = new long[oldKeys.length * 2];
+	highs = oldHighs == null ? null : new long[keys.length];
+	values = new int[oldValues.length * 2];
+	mask = keys.length - 1;
+	for ( int i = 0; i < oldKeys.length; i++ ) {
+	    if ( oldKeys[i] != EMPTY ) {
+		long high = oldHighs == null ? 0 : oldHighs[i];
+		int slot = slot(oldKeys[i], high);
+		while ( keys[slot] != EMPTY )
+		    slot = (slot + 1) & mask;
+		keys[slot] = oldKeys[i];
+		if ( highs != null )
+		    highs[slot] = high;
+		values[slot] = oldValues[i];
+	    }
+	}
+    }
+}
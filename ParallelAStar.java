@@ -0,0 +1,240 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Solves the 8-puzzle using hash distributed A* (HDA*) on several threads
+// Every board is owned by exactly one worker thread, chosen by hashing its packed board
+// Each worker keeps its own open list and best path cost per board for the boards it owns,
+// and sends the children it generates to their owners through the owners' inboxes
+// Workers expand nodes out of global f(n) order, so a board reached again with a lower
+// path cost is reopened, and the search only stops once no open node can beat the best solution
+// A worker with nothing to do parks until a node is sent to it or the search ends, so idle workers
+// leave the processor to other searches
+
+public class ParallelAStar {
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    // longest an idle worker parks before checking again, in case a wake-up was missed
+    private static final long IDLE_PARK_NANOS = 1000000;
+
+    private final Worker[] workers;
+    private final int maxNodes;
+    // metrics of the search, set by solve()
+    private SearchStats stats;
+
+    // number of busy workers plus the number of nodes sent but not yet received
+    // a worker only becomes busy again by receiving a node, so when this reaches 0 the search is over
+    private final AtomicLong work = new AtomicLong();
+    // number of child nodes generated by all workers
+    private final AtomicInteger numStatesSeen = new AtomicInteger();
+    // set when the node limit is reached or the search must stop
+    private volatile boolean aborted = false;
+
+    // best goal node found so far, and its path cost
+    private State solution = null;
+    private volatile int solutionCost = Integer.MAX_VALUE;
+
+    // Takes as input the number of worker threads and the maximum number of nodes to consider
+    // Throws IllegalArgumentException if numThreads is less than 1
+    public ParallelAStar(int numThreads, int maxNodes) {
+	if ( numThreads < 1 )
+	    throw new IllegalArgumentException("Number of threads must be at least 1: " + numThreads);
+	workers = new Worker[numThreads];
+	for ( int i = 0; i < numThreads; i++ )
+	    workers[i] = new Worker(i);
+	this.maxNodes = maxNodes;
+    }
+
+    // Runs the search from startState using the input heuristic
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal and the number of nodes each thread expanded
+    // Adds the workers' counters and CPU time to stats, and the sums of their peak sizes as the peaks
+    public int[] solve(State startState, Heuristic heuristic, SearchStats stats) throws InterruptedException {
+	this.stats = stats;
+	State start = startState.duplicate();
+	start.setPathCost(0);
+	start.evaluate(heuristic);
+
+	// every worker starts busy, and the start node is in flight to its owner
+	work.set(workers.length + 1);
+	workers[owner(start)].inbox.add(start);
+
+	Thread[] threads = new Thread[workers.length];
+	for ( int i = 0; i < workers.length; i++ ) {
+	    threads[i] = new Thread(workers[i], "parallel-a-star-" + i);
+	    workers[i].thread = threads[i];
+	    threads[i].start();
+	}
+	for ( int i = 0; i < threads.length; i++ )
+	    threads[i].join();
+
+	long totalExpanded = 0;
+	long peakOpen = 0;
+	long peakBoards = 0;
+	for ( int i = 0; i < workers.length; i++ ) {
+	    Solve.report(stats, "Thread " + i + " expanded " + workers[i].expanded + " nodes");
+	    totalExpanded += workers[i].expanded;
+	    stats.nodesGenerated += workers[i].generated;
+	    stats.duplicateHits += workers[i].duplicates;
+	    stats.stalePops += workers[i].stalePops;
+	    stats.addCpuNanos(workers[i].cpuNanos);
+	    peakOpen += workers[i].peakOpen;
+	    peakBoards += workers[i].bestCost.size();
+	}
+	stats.nodesExpanded += totalExpanded;
+	stats.updatePeaks(peakOpen, peakBoards);
+	Solve.report(stats, "Total expanded: " + totalExpanded);
+
+	if ( aborted ) {
+	    String stopReason = stats.stopReason();
+	    Solve.report(stats, stopReason != null ? stopReason : "Reach maximum number of nodes: " + maxNodes);
+	    return new int[] {-1, numStatesSeen.get()};
+	}
+	if ( solution == null ) {
+	    Solve.report(stats, "No solution found.");
+	    return new int[] {-1, numStatesSeen.get()};
+	}
+	Solve.printMoves(solution, solution.getPath(), stats);
+	return new int[] {solution.getPathCost(), numStatesSeen.get()};
+    }
+
+    // Unparks every idle worker, so that it sees the search has ended
+    private void wakeAll() {
+	for ( Worker worker : workers ) {
+	    if ( worker.idle )
+		LockSupport.unpark(worker.thread);
+	}
+    }
+
+    // Returns the index of the worker that owns state's board
+    private int owner(State state) {
+	return (int) ((State.mix(state.getPackedBoard(), state.getPackedBoardHigh()) >>> 32) % workers.length);
+    }
+
+    // Records goal as the solution if it is cheaper than the best one so far
+    private synchronized void offerSolution(State goal) {
+	if ( goal.getPathCost() < solutionCost ) {
+	    solution = goal;
+	    solutionCost = goal.getPathCost();
+	}
+    }
+
+    // A worker thread and the part of the search space it owns
+    private class Worker implements Runnable {
+	private final int id;
+	// nodes sent to this worker by the others
+	final ConcurrentLinkedQueue<State> inbox = new ConcurrentLinkedQueue<State>();
+	// the thread running this worker, set before it starts
+	Thread thread;
+	// true while this worker may be parked waiting for its inbox
+	volatile boolean idle = false;
+	// open list of the boards this worker owns
+	private final PriorityQueue<State> open = new PriorityQueue<State>();
+	// lowest path cost found so far for each board this worker owns
+	final LongIntHashMap bestCost = new LongIntHashMap();
+	// counters of this worker, read once the thread has finished
+	long expanded = 0;
+	long generated = 0;
+	long duplicates = 0;
+	long stalePops = 0;
+	long peakOpen = 0;
+	long cpuNanos = 0;
+
+	Worker(int id) {
+	    this.id = id;
+	}
+
+	public void run() {
+	    long startCpu = threadBean.getCurrentThreadCpuTime();
+	    search();
+	    cpuNanos = threadBean.getCurrentThreadCpuTime() - startCpu;
+	}
+
+	private void search() {
+	    boolean busy = true; // counted in work while true
+	    while ( !aborted ) {
+		if ( !busy ) {
+		    if ( inbox.isEmpty() ) {
+			if ( work.get() == 0 ) // no busy workers and nothing in flight
+			    return;
+			// idle is set before the inbox is checked again, so a sender that adds a node
+			// after that check sees it and unparks this worker
+			idle = true;
+			if ( inbox.isEmpty() && work.get() != 0 && !aborted )
+			    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+			idle = false;
+			continue;
+		    }
+		    busy = true;
+		    work.incrementAndGet();
+		}
+
+		// take in the nodes sent by other workers
+		State received;
+		while ( (received = inbox.poll()) != null ) {
+		    insert(received);
+		    work.decrementAndGet();
+		}
+
+		// nodes with f(n) at least the best solution's cost cannot lead to a better solution
+		State currentState = open.peek();
+		if ( currentState == null
+		     || currentState.getPathCost() + currentState.getEstimatedCost() >= solutionCost ) {
+		    busy = false;
+		    if ( work.decrementAndGet() == 0 )
+			wakeAll(); // the search is over, so the parked workers can return
+		    continue;
+		}
+		open.poll();
+		// skip nodes that were reached again with a lower path cost after being queued
+		if ( currentState.getPathCost() > bestCost.get(currentState.getPackedBoard(), currentState.getPackedBoardHigh(), Integer.MAX_VALUE) ) {
+		    stalePops += 1;
+		    continue;
+		}
+		if ( currentState.isGoal() ) {
+		    offerSolution(currentState);
+		    continue;
+		}
+
+		expanded += 1;
+		for ( int move : currentState.moves() ) {
+		    State childState = currentState.child(move);
+		    generated += 1;
+		    if ( (numStatesSeen.incrementAndGet() > maxNodes && maxNodes > -1) || stats.stopReason() != null ) {
+			aborted = true;
+			wakeAll();
+			return;
+		    }
+		    int childOwner = owner(childState);
+		    if ( childOwner == id )
+			insert(childState);
+		    else {
+			work.incrementAndGet(); // counted before it can be received
+			Worker owner = workers[childOwner];
+			owner.inbox.add(childState);
+			if ( owner.idle )
+			    LockSupport.unpark(owner.thread);
+		    }
+		}
+	    }
+	}
+
+	// Adds state to the open list if it reaches its board with a lower path cost than before
+	private void insert(State state) {
+	    long board = state.getPackedBoard();
+	    long boardHigh = state.getPackedBoardHigh();
+	    if ( state.getPathCost() < bestCost.get(board, boardHigh, Integer.MAX_VALUE) ) {
+		bestCost.put(board, boardHigh, state.getPathCost());
+		open.add(state);
+		peakOpen = Math.max(peakOpen, open.size());
+	    }
+	    else
+		duplicates += 1;
+	}
+    }
+}
@@ -0,0 +1,188 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Additive disjoint pattern databases for the 8-puzzle
+// The tiles are split into the patterns {1,2,3,4} and {5,6,7,8}
+// For each pattern, the database stores the minimum number of moves of that pattern's tiles
+// needed to bring them to their goal cells, for every placement of the pattern's tiles and the blank
+// Moves of the other tiles are free, so the two values can be added and the sum is still admissible
+// Keeping the blank's cell in the index also keeps the sum consistent, since a move changes
+// the value of only the moved tile's pattern, and by at most 1
+// The tables are generated once by a backwards breadth first search from the goal state,
+// saved to a binary file, and memory-mapped on later runs
+
+public class PatternDatabase {
+    // file the tables are saved to, in the working directory
+    private static final String FILE_NAME = "pdb.bin";
+    // identifies the file format, changing the table layout must change this value
+    private static final int MAGIC = 0x50444238; // "PDB8"
+
+    private static final int DIMENSION = 3;
+    private static final int CELLS = DIMENSION * DIMENSION;
+    // the tiles in each pattern
+    private static final int[][] PATTERNS = { {1, 2, 3, 4}, {5, 6, 7, 8} };
+    // every pattern has the same number of tiles
+    private static final int PATTERN_SIZE = 4;
+    // a placement of a pattern's tiles is indexed as a base 9 number, one digit per tile
+    private static final int PLACEMENTS = 9 * 9 * 9 * 9;
+    // a table entry is indexed by blank * PLACEMENTS + placement
+    private static final int TABLE_SIZE = CELLS * PLACEMENTS;
+    // marks a table entry that has not been reached yet
+    private static final int UNSEEN = 0xFF;
+
+    // PATTERN_OF[tile] is the pattern tile belongs to, -1 for the blank
+    private static final int[] PATTERN_OF = new int[CELLS];
+    // PLACE_VALUE[tile] is the place value of tile's digit in its pattern's placement index
+    private static final int[] PLACE_VALUE = new int[CELLS];
+    static {
+	PATTERN_OF[0] = -1;
+	for ( int p = 0; p < PATTERNS.length; p++ ) {
+	    for ( int i = 0; i < PATTERN_SIZE; i++ ) {
+		PATTERN_OF[PATTERNS[p][i]] = p;
+		PLACE_VALUE[PATTERNS[p][i]] = power(i);
+	    }
+	}
+    }
+
+    // the tables, one after another in pattern order
+    private final ByteBuffer tables;
+
+    private PatternDatabase(ByteBuffer tables) {
+	this.tables = tables;
+    }
+
+    // Holder class, so the tables are loaded on first use and exactly once
+    private static class Holder {
+	static final PatternDatabase INSTANCE = load();
+    }
+
+    // Returns the pattern database, loading or generating it on first use
+    public static PatternDatabase getInstance() {
+	return Holder.INSTANCE;
+    }
+
+    // Returns the heuristic value of state
+    // Sum over the patterns of the stored distance for the placement of the pattern's tiles
+    public int estimate(State state) {
+	// placement index of each pattern, built up one cell at a time
+	int first = 0;
+	int second = 0;
+	for ( int cell = 0; cell < CELLS; cell++ ) {
+	    int tile = state.tileAt(cell);
+	    if ( PATTERN_OF[tile] == 0 )
+		first += cell * PLACE_VALUE[tile];
+	    else if ( PATTERN_OF[tile] == 1 )
+		second += cell * PLACE_VALUE[tile];
+	}
+	int blank = state.getBlankCell() * PLACEMENTS;
+	return (tables.get(blank + first) & 0xFF) + (tables.get(TABLE_SIZE + blank + second) & 0xFF);
+    }
+
+    // Maps the tables from FILE_NAME, generating and saving them first if the file is missing or invalid
+    // If the file cannot be written the generated tables are kept in memory only, see TableFile.load()
+    private static PatternDatabase load() {
+	return new PatternDatabase(TableFile.load(FILE_NAME, MAGIC, PATTERNS.length * TABLE_SIZE, "pattern database",
+						   PatternDatabase::generate));
+    }
+
+    // Generates the tables for every pattern, one after another
+    private static byte[] generate() {
+	byte[] tables = new byte[PATTERNS.length * TABLE_SIZE];
+	for ( int p = 0; p < PATTERNS.length; p++ ) {
+	    byte[] table = generate(PATTERNS[p]);
+	    System.arraycopy(table, 0, tables, p * TABLE_SIZE, TABLE_SIZE);
+	}
+	return tables;
+    }
+
+    // Generates the table for one pattern
+    // Searches backwards from the goal over abstract states made of the pattern tiles' cells and the blank's cell
+    // Moving the blank onto a pattern tile costs 1, moving it onto any other tile costs 0,
+    // so the search is a 0-1 breadth first search using a double-ended queue
+    private static byte[] generate(int[] pattern) {
+	// distance[blank * PLACEMENTS + placement] for every abstract state
+	byte[] distance = new byte[TABLE_SIZE];
+	Arrays.fill(distance, (byte) UNSEEN);
+	// circular double-ended queue of abstract states
+	// a state is queued at most once per incoming edge, so 4 entries per state is enough
+	int[] deque = new int[Integer.highestOneBit(4 * TABLE_SIZE) * 2];
+	int dequeMask = deque.length - 1;
+	int head = 0;
+	int tail = 0;
+
+	// goal state: every tile at the cell matching its number and the blank at cell 0
+	int goal = 0;
+	for ( int i = PATTERN_SIZE - 1; i >= 0; i-- )
+	    goal = goal * CELLS + pattern[i];
+	distance[goal] = 0;
+	deque[tail++] = goal;
+
+	int[] cells = new int[PATTERN_SIZE]; // cells of the pattern tiles in the current state
+	while ( head != tail ) {
+	    int state = deque[head];
+	    head = (head + 1) & dequeMask;
+	    int blank = state / PLACEMENTS;
+	    int placement = state % PLACEMENTS;
+	    int cost = distance[state] & 0xFF;
+	    for ( int i = 0, rest = placement; i < PATTERN_SIZE; i++, rest /= CELLS )
+		cells[i] = rest % CELLS;
+
+	    // try moving the blank in each direction
+	    for ( int move = 0; move < 4; move++ ) {
+		int target = neighbour(blank, move);
+		if ( target < 0 )
+		    continue;
+		// find the pattern tile the blank swaps with, if any
+		int tile = -1;
+		for ( int i = 0; i < PATTERN_SIZE; i++ ) {
+		    if ( cells[i] == target )
+			tile = i;
+		}
+		int nextPlacement = placement;
+		int nextCost = cost;
+		if ( tile >= 0 ) { // the pattern tile moves into the blank's cell
+		    nextPlacement += (blank - target) * power(tile);
+		    nextCost += 1;
+		}
+		int next = target * PLACEMENTS + nextPlacement;
+		if ( nextCost < (distance[next] & 0xFF) ) {
+		    distance[next] = (byte) nextCost;
+		    if ( tile >= 0 ) { // cost 1 moves go to the back of the queue
+			deque[tail] = next;
+			tail = (tail + 1) & dequeMask;
+		    }
+		    else { // cost 0 moves go to the front
+			head = (head - 1) & dequeMask;
+			deque[head] = next;
+		    }
+		}
+	    }
+	}
+	return distance;
+    }
+
+    // Returns the cell next to cell in the direction of the move code, or -1 if there is none
+    private static int neighbour(int cell, int move) {
+	int row = cell / DIMENSION;
+	int column = cell % DIMENSION;
+	if ( move == State.UP )
+	    row -= 1;
+	else if ( move == State.DOWN )
+	    row += 1;
+	else if ( move == State.LEFT )
+	    column -= 1;
+	else
+	    column += 1;
+	if ( row < 0 || row >= DIMENSION || column < 0 || column >= DIMENSION )
+	    return -1;
+	return row * DIMENSION + column;
+    }
+
+    // Returns 9 to the power of i, the place value of the i-th tile's digit in a placement index
+    private static int power(int i) {
+	int value = 1;
+	for ( ; i > 0; i-- )
+	    value *= CELLS;
+	return value;
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+
+// Metrics collected by a single run of a search algorithm
+// The search algorithms update the counters directly as they run,
+// and call start() and stop() around the search to measure its time
+// A search can be stopped from another thread with cancel(), or by a deadline, which searches
+// check through stopReason() as often as their node limit
+// The first reason stopReason() gives is kept, so callers can tell afterwards why the search stopped
+
+public class SearchStats {
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    // number of nodes whose children were generated
+    long nodesExpanded = 0;
+    // number of child nodes generated
+    long nodesGenerated = 0;
+    // number of generated children dropped because their board was already explored
+    long duplicateHits = 0;
+    // number of nodes removed from the frontier and dropped because their board was already explored
+    long stalePops = 0;
+    // largest number of nodes held in the frontier at once
+    long peakFrontierSize = 0;
+    // largest number of boards held in the explored set at once
+    long peakExploredSize = 0;
+    // true if the solution was taken from a SolutionCache instead of searching
+    boolean cacheHit = false;
+    // number of nodes considered at the search's last check of its maxNodes limit
+    // The limit only stops a search, so a search that found a solution finds the same one under
+    // any maxNodes of at least this, and fails under any lower one
+    // Recorded by A*, IDA*, bidirectional A* and local beam search
+    long nodesNeeded = 0;
+
+    // number of moves in the solution, -1 if no solution was found
+    private int moves = -1;
+    // true once stop() has been called
+    private boolean finished = false;
+    private long wallNanos = 0;
+    // CPU time of the searching thread, plus any time added by helper threads
+    private long cpuNanos = 0;
+    private long startWall;
+    private long startCpu;
+
+    // true if the search should not print its solution or messages, see Solve.report()
+    private boolean quiet = false;
+    // moves of the solution found, null if no solution was found
+    private List<String> path = null;
+    // where the search prints its solution and messages, see Solve.report()
+    private PrintStream out = System.out;
+    // set by cancel(), possibly on another thread
+    private volatile boolean cancelled = false;
+    // System.nanoTime() the search must stop by, -1 for no deadline
+    private volatile long deadline = -1;
+    // the search this one runs as part of, which it stops with, null if none
+    private SearchStats parent = null;
+    // first reason stopReason() gave for the search to stop, null if it has not given one
+    private volatile String stoppedBy = null;
+
+    // Records the time the search starts
+    public void start() {
+	startWall = System.nanoTime();
+	startCpu = threadBean.getCurrentThreadCpuTime();
+    }
+
+    // Records the time the search ends and the number of moves in its solution, -1 if none
+    // Must be called on the thread that called start()
+    public void stop(int moves) {
+	this.moves = moves;
+	finished = true;
+	wallNanos += System.nanoTime() - startWall;
+	addCpuNanos(threadBean.getCurrentThreadCpuTime() - startCpu);
+    }
+
+    // Adds CPU time spent by a helper thread of the search
+    public synchronized void addCpuNanos(long nanos) {
+	cpuNanos += nanos;
+    }
+
+    // Adds the counters of another search that ran as part of this one, such as a fallback search
+    // The other search's time is not added, since it is already part of this search's time
+    void merge(SearchStats other) {
+	nodesExpanded += other.nodesExpanded;
+	nodesGenerated += other.nodesGenerated;
+	duplicateHits += other.duplicateHits;
+	stalePops += other.stalePops;
+	updatePeaks(other.peakFrontierSize, other.peakExploredSize);
+	if ( other.path != null )
+	    path = other.path;
+    }
+
+    // Returns new metrics for a search that runs as part of this one, such as a fallback search
+    // The new search prints where this one prints, and stops when this one must stop
+    SearchStats subsearch() {
+	SearchStats stats = new SearchStats();
+	stats.quiet = quiet;
+	stats.out = out;
+	stats.parent = this;
+	return stats;
+    }
+
+    // Records the current sizes of the frontier and explored set, keeping the largest seen
+    void updatePeaks(long frontierSize, long exploredSize) {
+	if ( frontierSize > peakFrontierSize )
+	    peakFrontierSize = frontierSize;
+	if ( exploredSize > peakExploredSize )
+	    peakExploredSize = exploredSize;
+    }
+
+    public long getNodesExpanded() {
+	return nodesExpanded;
+    }
+
+    public long getNodesGenerated() {
+	return nodesGenerated;
+    }
+
+    public long getDuplicateHits() {
+	return duplicateHits;
+    }
+
+    public long getStalePops() {
+	return stalePops;
+    }
+
+    public long getPeakFrontierSize() {
+	return peakFrontierSize;
+    }
+
+    public long getNodesNeeded() {
+	return nodesNeeded;
+    }
+
+    public boolean isCacheHit() {
+	return cacheHit;
+    }
+
+    public long getPeakExploredSize() {
+	return peakExploredSize;
+    }
+
+    // Returns true if the search has finished and the metrics are complete
+    public boolean isFinished() {
+	return finished;
+    }
+
+    // Makes the search print nothing, for callers that report the results themselves
+    public void setQuiet(boolean quiet) {
+	this.quiet = quiet;
+    }
+
+    public boolean isQuiet() {
+	return quiet;
+    }
+
+    // Makes the search print to out instead of standard output
+    public void setOut(PrintStream out) {
+	this.out = out;
+    }
+
+    public PrintStream getOut() {
+	return out;
+    }
+
+    // Makes the search stop at its next check, may be called from any thread
+    public void cancel() {
+	cancelled = true;
+    }
+
+    // Sets the System.nanoTime() the search must stop by, -1 for no deadline
+    public void setDeadline(long deadline) {
+	this.deadline = deadline;
+    }
+
+    public long getDeadline() {
+	return deadline;
+    }
+
+    // Returns why the search must stop, or null if it may continue
+    // Searches stop as soon as this is not null, so the first reason is kept as the one the search stopped by
+    public String stopReason() {
+	String reason = null;
+	if ( cancelled )
+	    reason = "Search cancelled";
+	else if ( deadline > -1 && System.nanoTime() - deadline >= 0 )
+	    reason = "Deadline reached";
+	else if ( parent != null )
+	    reason = parent.stopReason();
+	if ( reason != null && stoppedBy == null )
+	    stoppedBy = reason;
+	return reason;
+    }
+
+    // Returns the reason the search stopped early, as given by stopReason(), or null if it was not stopped
+    public String getStoppedBy() {
+	return stoppedBy;
+    }
+
+    // Records the moves of the solution found, see Solve.printMoves()
+    public void setPath(List<String> path) {
+	this.path = path;
+    }
+
+    // Returns the moves of the solution found, null if no solution was found
+    public List<String> getPath() {
+	return path;
+    }
+
+    public int getMoves() {
+	return moves;
+    }
+
+    public long getWallNanos() {
+	return wallNanos;
+    }
+
+    public synchronized long getCpuNanos() {
+	return cpuNanos;
+    }
+
+    // Returns the effective branching factor b*, the branching factor a uniform tree of depth moves
+    // would need to contain nodesGenerated + 1 nodes: N + 1 = 1 + b* + b*^2 + ... + b*^d
+    // Returns 0 if no solution of at least one move was found
+    public double getEffectiveBranchingFactor() {
+	if ( moves < 1 || nodesGenerated < 1 )
+	    return 0;
+	// the tree size grows with b*, so b* can be found by bisection
+	double low = 0;
+	double high = Math.max(1, nodesGenerated);
+	for ( int i = 0; i < 100; i++ ) {
+	    double middle = (low + high) / 2;
+	    if ( treeSize(middle, moves) < nodesGenerated )
+		low = middle;
+	    else
+		high = middle;
+	}
+	return (low + high) / 2;
+    }
+
+    // Returns b + b^2 + ... + b^depth
+    private static double treeSize(double b, int depth) {
+	double size = 0;
+	double level = 1;
+	for ( int i = 0; i < depth; i++ ) {
+	    level *= b;
+	    size += level;
+	}
+	return size;
+    }
+
+    // Returns the column names matching toCsv()
+    public static String csvHeader() {
+	return "moves,expanded,generated,duplicates,stalePops,peakFrontier,peakExplored,branchingFactor,wallMs,cpuMs,"
+	    + "cacheHit";
+    }
+
+    // Returns the metrics as one line of comma separated values, see csvHeader()
+    public String toCsv() {
+	return String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%d,%.4f,%.3f,%.3f,%b", moves, nodesExpanded, nodesGenerated,
+			     duplicateHits, stalePops, peakFrontierSize, peakExploredSize,
+			     getEffectiveBranchingFactor(), wallNanos / 1e6, getCpuNanos() / 1e6, cacheHit);
+    }
+
+    // Returns the metrics as the fields of a JSON object, without the enclosing braces,
+    // so that callers can add fields of their own
+    public String toJsonFields() {
+	return String.format(Locale.ROOT, "\"moves\":%d,\"expanded\":%d,\"generated\":%d,\"duplicates\":%d,\"stalePops\":%d,"
+			     + "\"peakFrontier\":%d,\"peakExplored\":%d,\"branchingFactor\":%.4f,"
+			     + "\"wallMs\":%.3f,\"cpuMs\":%.3f,\"cacheHit\":%b",
+			     moves, nodesExpanded, nodesGenerated, duplicateHits, stalePops,
+			     peakFrontierSize, peakExploredSize, getEffectiveBranchingFactor(),
+			     wallNanos / 1e6, getCpuNanos() / 1e6, cacheHit);
+    }
+
+    @Override
+    public String toString() {
+	return String.format("Expanded: %d, generated: %d, duplicates: %d, stale pops: %d, "
+			     + "peak frontier: %d, peak explored: %d, branching factor: %.3f, "
+			     + "wall: %.3f ms, cpu: %.3f ms%s",
+			     nodesExpanded, nodesGenerated, duplicateHits, stalePops,
+			     peakFrontierSize, peakExploredSize, getEffectiveBranchingFactor(),
+			     wallNanos / 1e6, getCpuNanos() / 1e6, cacheHit ? ", from cache" : "");
+    }
+}
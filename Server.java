@@ -0,0 +1,234 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Long running solver that accepts the commands of Solve over TCP connections to the local host
+// The JVM starts once and the search code is warmed up before the first connection is accepted,
+// so requests do not pay for JVM startup or interpreted code
+// Each connection has a Session of its own, so clients do not share a board or settings
+// A connection's commands run one at a time, in the order they were sent, on a shared pool of
+// solver threads, and each command's output is followed by the line "done <milliseconds>",
+// the time from when the command was received to when it finished
+// At most MAX_PENDING commands of a connection wait or run at once; beyond that the server stops
+// reading the connection until one finishes, so a cancel sent then only takes effect at that point
+// A solve may ask for at most as many threads= as the server has solver threads,
+// and at most MAX_FILTER_BYTES of bytes=
+// Besides the commands of Solve, including "deadline N[ms|s]" to bound each later solve, a connection accepts:
+//   cancel   stops the solves sent before it, running or waiting; it has no output of its own
+//   health   prints "ok"
+//   metrics  prints the server's counters on one line
+//   quit     closes the connection once the commands sent before it have finished
+// Closing the connection cancels its solves
+// Each connection is read by a thread of its own, which only waits for its next line
+
+public class Server {
+    public static final int DEFAULT_PORT = 7391;
+    // steps each warm-up board is randomized by
+    private static final int WARM_UP_STEPS = 100;
+    // most commands of a connection that may be waiting or running at once
+    private static final int MAX_PENDING = 16;
+    // most bytes of filter a beam search of a connection may ask for
+    private static final long MAX_FILTER_BYTES = 64L << 20;
+
+    // threads that run the commands of every connection
+    private final ExecutorService solvers;
+    // number of solver threads, also the most threads a solve may ask for
+    private final int threads;
+    // threads that read the connections, one for each open connection
+    private final ExecutorService readers = Executors.newCachedThreadPool();
+    private final long startNanos = System.nanoTime();
+
+    // counters printed by the metrics command
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong solves = new AtomicLong();
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong pastDeadline = new AtomicLong();
+    // wall time of the solves, in nanoseconds
+    private final AtomicLong solveNanos = new AtomicLong();
+    private final AtomicLong maxSolveNanos = new AtomicLong();
+
+    // Creates a server that runs commands on the input number of threads
+    public Server(int threads) {
+	solvers = Executors.newFixedThreadPool(threads);
+	this.threads = threads;
+    }
+
+    // Arguments: [--port N] [--threads N] [--warmup N]
+    // Listens on DEFAULT_PORT with one solver thread per processor, after warming up on 200 boards, by default
+    public static void main(String[] args) throws IOException {
+	int port = DEFAULT_PORT;
+	int threads = Runtime.getRuntime().availableProcessors();
+	int warmUpBoards = 200;
+	for ( int i = 0; i < args.length; i++ ) {
+	    if ( args[i].equals("--port") )
+		port = Integer.parseInt(args[++i]);
+	    else if ( args[i].equals("--threads") )
+		threads = Integer.parseInt(args[++i]);
+	    else if ( args[i].equals("--warmup") )
+		warmUpBoards = Integer.parseInt(args[++i]);
+	}
+
+	long start = System.nanoTime();
+	warmUp(warmUpBoards);
+	System.err.println(String.format(Locale.ROOT, "Warmed up on %d boards in %.1f ms", warmUpBoards,
+					 (System.nanoTime() - start) / 1e6));
+
+	Server server = new Server(threads);
+	try ( ServerSocket listener = new ServerSocket(port, 50, InetAddress.getLoopbackAddress()) ) {
+	    System.err.println("Listening on " + listener.getLocalSocketAddress());
+	    server.serve(listener);
+	}
+    }
+
+    // Solves the input number of random 8-puzzles with A* h2 and local beam search, printing nothing,
+    // so that the search code is compiled before the first request
+    static void warmUp(int boards) {
+	Random random = new Random(0);
+	for ( int i = 0; i < boards; i++ ) {
+	    State board = new State();
+	    board.randomize(WARM_UP_STEPS, random);
+	    SearchStats stats = new SearchStats();
+	    stats.setQuiet(true);
+	    Solve.solveAStar(board, Heuristic.H2, -1, new HeapFrontier(), stats);
+	    stats = new SearchStats();
+	    stats.setQuiet(true);
+	    Solve.solveLocalBeamSearch(board, 50, -1, stats);
+	}
+    }
+
+    // Accepts connections from listener until it is closed
+    public void serve(ServerSocket listener) throws IOException {
+	while ( true ) {
+	    Socket socket = listener.accept();
+	    readers.execute(() -> handle(socket));
+	}
+    }
+
+    // Reads the commands of a connection and queues them to run in order, until the connection
+    // is closed or sends quit
+    private void handle(Socket socket) {
+	openConnections.incrementAndGet();
+	connections.incrementAndGet();
+	try ( Socket connection = socket ) {
+	    PrintStream out = new PrintStream(new BufferedOutputStream(connection.getOutputStream()), false,
+					      StandardCharsets.UTF_8);
+	    BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(),
+									 StandardCharsets.UTF_8));
+	    Session session = new Session(out, threads, MAX_FILTER_BYTES);
+	    // completes when the last command queued has finished
+	    CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+	    // one permit for each command that may still be queued
+	    Semaphore pending = new Semaphore(MAX_PENDING);
+	    boolean quit = false;
+	    try {
+		String line;
+		while ( (line = in.readLine()) != null ) {
+		    long receivedNanos = System.nanoTime();
+		    String command = line.trim();
+		    if ( command.equalsIgnoreCase("cancel") )
+			session.cancel();
+		    else if ( command.equalsIgnoreCase("quit") ) {
+			quit = true;
+			break;
+		    }
+		    else {
+			pending.acquire();
+			last = last.thenRunAsync(() -> run(session, command, receivedNanos, out), solvers);
+			// released even if the command did not run, so reading never waits forever
+			last.whenComplete((result, failure) -> pending.release());
+		    }
+		}
+	    }
+	    catch (IOException e) {
+		// the client went away, and its solves are cancelled below
+	    }
+	    catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    if ( !quit )
+		session.cancel();
+	    try {
+		last.join();
+	    }
+	    catch (CompletionException e) {
+		System.err.println("Command failed: " + e.getCause());
+	    }
+	}
+	catch (IOException e) {
+	    System.err.println("Connection failed: " + e.getMessage());
+	}
+	finally {
+	    openConnections.decrementAndGet();
+	}
+    }
+
+    // Runs command in session, received at the System.nanoTime() receivedNanos, and prints its output
+    // followed by the done line
+    private void run(Session session, String command, long receivedNanos, PrintStream out) {
+	commands.incrementAndGet();
+	try {
+	    if ( command.equalsIgnoreCase("health") )
+		out.println("ok");
+	    else if ( command.equalsIgnoreCase("metrics") )
+		out.println(metrics());
+	    else
+		record(session.execute(command, receivedNanos));
+	}
+	catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    out.println("Error: " + e);
+	}
+	catch (Throwable e) {
+	    // errors are reported as well, since a command that failed would skip every later one
+	    out.println("Error: " + e);
+	}
+	out.println(String.format(Locale.ROOT, "done %.3f", (System.nanoTime() - receivedNanos) / 1e6));
+	out.flush();
+    }
+
+    // Adds the metrics of a command to the server's counters, if it ran a search
+    private void record(SearchStats stats) {
+	if ( !stats.isFinished() )
+	    return;
+	solves.incrementAndGet();
+	if ( stats.getMoves() > -1 )
+	    solved.incrementAndGet();
+	else if ( "Search cancelled".equals(stats.getStoppedBy()) )
+	    cancelled.incrementAndGet();
+	else if ( "Deadline reached".equals(stats.getStoppedBy()) )
+	    pastDeadline.incrementAndGet();
+	solveNanos.addAndGet(stats.getWallNanos());
+	maxSolveNanos.accumulateAndGet(stats.getWallNanos(), Math::max);
+    }
+
+    // Returns the server's counters as one line
+    String metrics() {
+	long numSolves = solves.get();
+	Runtime runtime = Runtime.getRuntime();
+	return String.format(Locale.ROOT, "uptime %.1f s, connections %d open %d total, commands %d, "
+			     + "solves %d (%d solved, %d cancelled, %d past deadline), "
+			     + "solve wall mean %.3f ms max %.3f ms, heap %.1f MB",
+			     (System.nanoTime() - startNanos) / 1e9, openConnections.get(), connections.get(),
+			     commands.get(), numSolves, solved.get(), cancelled.get(), pastDeadline.get(),
+			     numSolves == 0 ? 0.0 : solveNanos.get() / 1e6 / numSolves, maxSolveNanos.get() / 1e6,
+			     (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0);
+    }
+}
@@ -0,0 +1,316 @@
+import java.io.PrintStream;
+
+// The puzzle board and settings that a sequence of commands acts on, and the interpreter of those commands
+// Solve runs one session over a command file, and Server runs one for each connection,
+// so that each client has a board of its own
+// Solve commands can be stopped from another thread with cancel()
+
+public class Session {
+    // where the results of the commands are printed
+    private final PrintStream out;
+    // the puzzle board
+    private State board = new State();
+    private int maxNodes = -1; // default no max
+    private boolean printStats = false; // print search metrics after each solve
+    private Budget budget = null; // resource limits for A*, default none
+    private SolutionCache cache = null; // cache of A* solutions, default none
+    private long deadlineMillis = -1; // time each solve must answer within, default none
+    // metrics of the command running, or of the last one to run
+    private SearchStats current = null;
+    // true once cancel() has been called
+    private boolean cancelled = false;
+    // System.nanoTime() of the last call to cancel(), if it has been called
+    private long cancelledNanos;
+    // most threads= a solve command may ask for
+    private final int maxThreads;
+    // most bytes= a beam search may ask for
+    private final long maxFilterBytes;
+
+    // Creates a session with the default 3x3 board that prints its results to out
+    public Session(PrintStream out) {
+	this(out, Integer.MAX_VALUE, BloomFilter.MAX_BYTES);
+    }
+
+    // Creates a session with the default 3x3 board that prints its results to out,
+    // whose solve commands may ask for at most maxThreads threads and maxFilterBytes bytes of filter
+    public Session(PrintStream out, int maxThreads, long maxFilterBytes) {
+	this.out = out;
+	this.maxThreads = maxThreads;
+	this.maxFilterBytes = maxFilterBytes;
+    }
+
+    // Runs the command on commandLine, received at the System.nanoTime() receivedNanos
+    // Lines that are not commands are ignored
+    // Returns the metrics of the command, which are finished if it ran a search
+    public SearchStats execute(String commandLine, long receivedNanos) throws InterruptedException {
+	// metrics of the solve command on this line, if any
+	SearchStats stats = new SearchStats();
+	stats.setOut(out);
+	if ( deadlineMillis > -1 )
+	    stats.setDeadline(receivedNanos + deadlineMillis * 1000000);
+	synchronized (this) {
+	    current = stats;
+	    // a command received before a cancel is cancelled even if it had not started yet
+	    if ( cancelled && receivedNanos - cancelledNanos <= 0 )
+		stats.cancel();
+	}
+
+	// randomizeState command
+	if ( commandLine.toLowerCase().startsWith("randomizestate") ) {
+	    // get number of steps to randomize to
+	    int steps = Integer.parseInt(commandLine.substring("randomizeState".length() + 1));
+	    board.randomize(steps);
+	}
+
+	// set state command
+	else if ( commandLine.toLowerCase().startsWith("setstate") ) {
+	    // get the parameter
+	    String inputState = commandLine.substring("setState".length());
+	    // parse it, keeping the current board if it is malformed
+	    try {
+		board = State.parse(inputState);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	}
+
+	// solve A-star command
+	// solve A-star <heuristic> [queue=heap|bucket]
+	else if ( commandLine.toLowerCase().startsWith("solve a-star") ) {
+	    String[] arguments = commandLine.substring("solve a-star".length() + 1).trim().split("\\s+");
+	    try { 
+		Heuristic heuristic = Heuristic.forName(arguments[0]);
+		board.evaluate(heuristic);
+		Frontier frontier = Frontier.create(Solve.option(arguments, "queue", "heap"));
+		int[] solution;
+		if ( budget != null ) {
+		    // the budgeted search keeps its own queue and limits, and its answers are not always
+		    // optimal, so they are neither looked up in nor added to the cache
+		    if ( Solve.option(arguments, "queue", null) != null )
+			out.println("queue= does not apply in budgeted mode.");
+		    if ( cache != null )
+			out.println("The solution cache does not apply in budgeted mode.");
+		    if ( maxNodes > -1 )
+			out.println("maxNodes does not apply in budgeted mode, use budget expansions=N instead.");
+		    solution = Solve.solveBudgetedAStar(board, heuristic, budget, stats);
+		}
+		else
+		    solution = Solve.solveAStar(board, heuristic, maxNodes, frontier, stats, cache);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	    catch (OutOfMemoryError e) {
+		out.println("Ran out of memory.");
+	    }
+	}
+
+	// solve parallel-A-star command
+	// solve parallel-A-star <heuristic> [threads=N]
+	else if ( commandLine.toLowerCase().startsWith("solve parallel-a-star") ) {
+	    String[] arguments = commandLine.substring("solve parallel-a-star".length() + 1).trim().split("\\s+");
+	    try {
+		Heuristic heuristic = Heuristic.forName(arguments[0]);
+		int threads = threadsOption(arguments, Math.min(Runtime.getRuntime().availableProcessors(), maxThreads));
+		int[] solution = Solve.solveParallelAStar(board, heuristic, maxNodes, threads, stats);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	    catch (OutOfMemoryError e) {
+		out.println("Ran out of memory.");
+	    }
+	}
+
+	// solve bidirectional command
+	else if ( commandLine.toLowerCase().startsWith("solve bidirectional") ) {
+	    try {
+		Heuristic heuristic = Heuristic.forName(commandLine.substring("solve bidirectional".length() + 1).trim());
+		int[] solution = Solve.solveBidirectional(board, heuristic, maxNodes, stats);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	    catch (OutOfMemoryError e) {
+		out.println("Ran out of memory.");
+	    }
+	}
+
+	// solve IDA-star command
+	else if ( commandLine.toLowerCase().startsWith("solve ida-star") ) {
+	    try {
+		Heuristic heuristic = Heuristic.forName(commandLine.substring("solve ida-star".length() + 1).trim());
+		int[] solution = Solve.solveIDAStar(board, heuristic, maxNodes, stats);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	    catch (OutOfMemoryError e) {
+		out.println("Ran out of memory.");
+	    }
+	}
+
+	// solve anytime command
+	// solve anytime <heuristic> [deadline=N[ms|s]] [weight=W]
+	else if ( commandLine.toLowerCase().startsWith("solve anytime") ) {
+	    String[] arguments = commandLine.substring("solve anytime".length() + 1).trim().split("\\s+");
+	    try {
+		Heuristic heuristic = Heuristic.forName(arguments[0]);
+		long deadlineMillis = parseMillis(Solve.option(arguments, "deadline", "-1"));
+		double weight = Double.parseDouble(Solve.option(arguments, "weight",
+								String.valueOf(AnytimeAStar.DEFAULT_WEIGHT)));
+		int[] solution = Solve.solveAnytimeAStar(board, heuristic, weight, deadlineMillis, maxNodes, stats);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	    catch (OutOfMemoryError e) {
+		out.println("Ran out of memory.");
+	    }
+	}
+
+	// solve beam command
+	// solve beam <k> [threads=N] [bytes=N[K|M|G]]
+	else if ( commandLine.toLowerCase().startsWith("solve beam") ) {
+	    String[] arguments = commandLine.substring("solve beam".length() + 1).trim().split("\\s+");
+	    try {
+		int k = Integer.parseInt(arguments[0]);
+		int threads = threadsOption(arguments, 1);
+		long filterBytes = Budget.parseBytes(Solve.option(arguments, "bytes",
+								  String.valueOf(Solve.DEFAULT_BEAM_FILTER_BYTES)));
+		if ( k < 1 )
+		    throw new IllegalArgumentException("Beam width must be at least 1: " + k);
+		if ( filterBytes < 1 || filterBytes > maxFilterBytes )
+		    throw new IllegalArgumentException("bytes= must be from 1 to " + maxFilterBytes + ": " + filterBytes);
+		board.evaluate(Heuristic.H2);
+		int[] solution = Solve.solveLocalBeamSearch(board, k, threads, filterBytes, maxNodes, stats);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	    catch (OutOfMemoryError e) {
+		out.println("Ran out of memory.");
+	    }
+	}
+
+	// solve table command
+	else if ( commandLine.toLowerCase().startsWith("solve table") ) {
+	    try {
+		int[] solution = Solve.solveTable(board, stats);
+	    }
+	    catch (OutOfMemoryError e) {
+		out.println("Ran out of memory.");
+	    }
+	}
+
+	// budget command
+	// budget [expansions=N] [frontier=N] [bytes=N[K|M|G]] [fallback=prune|weighted|beam], or budget off
+	else if ( commandLine.toLowerCase().startsWith("budget") ) {
+	    String[] arguments = commandLine.substring("budget".length()).trim().split("\\s+");
+	    try {
+		budget = arguments[0].equalsIgnoreCase("off") ? null : Budget.parse(arguments);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	}
+
+	// cache command
+	// cache <number of boards>, or cache off
+	else if ( commandLine.toLowerCase().startsWith("cache") ) {
+	    String argument = commandLine.substring("cache".length()).trim();
+	    try {
+		cache = argument.equalsIgnoreCase("off") ? null : new SolutionCache(Integer.parseInt(argument));
+	    }
+	    catch (NumberFormatException e) {
+		out.println("Invalid cache size: " + argument);
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	}
+
+	// stats on|off command
+	else if ( commandLine.toLowerCase().startsWith("stats") )
+	    printStats = commandLine.substring("stats".length()).trim().equalsIgnoreCase("on");
+
+	// maxNodes command
+	else if ( commandLine.toLowerCase().startsWith("maxnodes") )
+	    maxNodes = Integer.parseInt(commandLine.substring("maxnodes".length() + 1));
+
+	// deadline command
+	// deadline N[ms|s], or deadline off
+	// each later solve command must answer within N, measured from when it was received
+	else if ( commandLine.toLowerCase().startsWith("deadline") ) {
+	    String argument = commandLine.substring("deadline".length()).trim();
+	    try {
+		deadlineMillis = argument.equalsIgnoreCase("off") ? -1 : parseMillis(argument);
+	    }
+	    catch (NumberFormatException e) {
+		out.println("Invalid deadline: " + argument);
+	    }
+	}
+
+	// printState command
+	else if ( commandLine.toLowerCase().startsWith("printstate") )
+	    board.print(out);
+
+	// move <direction> command
+	else if ( commandLine.toLowerCase().startsWith("move") ) {
+	    String direction = commandLine.substring("move".length() + 1);
+	    // keep the board unchanged if the blank cannot move that way
+	    try {
+		int move = State.moveCode(direction);
+		if ( board.canMove(move) )
+		    board.move(move);
+		else
+		    out.println("Cannot move " + direction + " from this state.");
+	    }
+	    catch (IllegalArgumentException e) {
+		out.println(e.getMessage());
+	    }
+	}
+
+	// print the metrics if a solve command finished on this line
+	// along with the cache's hit rate and size if a cache is in use
+	if ( printStats && stats.isFinished() ) {
+	    out.println(stats);
+	    if ( cache != null )
+		out.println(cache);
+	}
+
+	return stats;
+    }
+
+    // Stops the solve commands received so far, the one running and any still waiting to run
+    // Commands that do not search still run, so the settings they make are kept
+    // May be called from any thread
+    public synchronized void cancel() {
+	cancelled = true;
+	cancelledNanos = System.nanoTime();
+	if ( current != null )
+	    current.cancel();
+    }
+
+    // Returns the threads= option of a solve command, or defaultThreads if it is not given
+    // Throws IllegalArgumentException if it is less than 1 or more than this session allows
+    private int threadsOption(String[] arguments, int defaultThreads) {
+	int threads = Integer.parseInt(Solve.option(arguments, "threads", String.valueOf(defaultThreads)));
+	if ( threads < 1 )
+	    throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+	if ( threads > maxThreads )
+	    throw new IllegalArgumentException("threads= is limited to " + maxThreads + " in this session: " + threads);
+	return threads;
+    }
+
+    // Returns the number of milliseconds in a duration such as 50ms, 2s or 50, which is in milliseconds
+    static long parseMillis(String duration) {
+	String lower = duration.toLowerCase();
+	if ( lower.endsWith("ms") )
+	    return Long.parseLong(lower.substring(0, lower.length() - 2));
+	if ( lower.endsWith("s") )
+	    return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1000;
+	return Long.parseLong(lower);
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Bounded cache of optimal solutions, shared by every solve that is given it
+// Solutions are stored one board at a time: each board on a solution's path maps to the first move
+// of the rest of the path, so a board anywhere on a cached path is answered as well, since the rest
+// of an optimal path is an optimal path from that board
+// A board is answered by following the cached moves to the goal, and is a miss if one is missing
+// Entries are keyed on the packed board and the solver configuration, such as "astar-h2",
+// and the least recently used entries are evicted once the cache holds its capacity
+// Only solvers that return optimal solutions may add to the cache
+// The methods are synchronized, so the cache can be shared by searches on several threads
+
+public class SolutionCache {
+    // approximate size of an entry: the hash map entry, the key and a share of the table
+    private static final int ENTRY_BYTES = 72;
+
+    // maps each cached board to the code of its next move
+    private final LinkedHashMap<Key, Byte> nextMoves;
+    private long hits = 0;
+    private long misses = 0;
+
+    // Key of an entry, a packed board under a solver configuration
+    // Packed boards of different sizes never coincide, since every size has a tile in its last cell
+    private static class Key {
+	final long board;
+	final long boardHigh;
+	final String config;
+
+	Key(State state, String config) {
+	    this.board = state.getPackedBoard();
+	    this.boardHigh = state.getPackedBoardHigh();
+	    this.config = config;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+	    Key key = (Key) other;
+	    return board == key.board && boardHigh == key.boardHigh && config.equals(key.config);
+	}
+
+	@Override
+	public int hashCode() {
+	    long hash = State.mix(board, boardHigh);
+	    return (int) (hash ^ (hash >>> 32)) ^ config.hashCode();
+	}
+    }
+
+    // Creates an empty cache holding at most capacity boards
+    // Throws IllegalArgumentException if capacity is less than 1
+    public SolutionCache(int capacity) {
+	if ( capacity < 1 )
+	    throw new IllegalArgumentException("Cache size must be at least 1: " + capacity);
+	nextMoves = new LinkedHashMap<Key, Byte>(16, 0.75f, true) {
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<Key, Byte> eldest) {
+		return size() > capacity;
+	    }
+	};
+    }
+
+    // Returns the goal state reached from startState by its cached solution under config,
+    // with startState as the root of its path, or null if the solution is not cached
+    // A goal board has nothing to look up, so it returns null and counts as neither a hit nor a miss
+    public synchronized State get(State startState, String config) {
+	if ( startState.isGoal() )
+	    return null;
+	State state = startState.duplicate();
+	state.setPathCost(0);
+	while ( !state.isGoal() ) {
+	    Byte move = nextMoves.get(new Key(state, config));
+	    if ( move == null ) {
+		misses += 1;
+		return null;
+	    }
+	    state = state.child(move);
+	}
+	hits += 1;
+	return state;
+    }
+
+    // Adds the optimal solution path found from startState under config
+    // Every board on the path is cached with its next move
+    public synchronized void put(State startState, String config, List<String> path) {
+	State state = startState.duplicate();
+	for ( String name : path ) {
+	    int move = State.moveCode(name);
+	    nextMoves.put(new Key(state, config), (byte) move);
+	    state.move(move);
+	}
+    }
+
+    public synchronized long getHits() {
+	return hits;
+    }
+
+    public synchronized long getMisses() {
+	return misses;
+    }
+
+    // Returns the number of boards held
+    public synchronized int size() {
+	return nextMoves.size();
+    }
+
+    // Returns the approximate number of bytes the cache takes up
+    public synchronized long getMemoryBytes() {
+	return (long) nextMoves.size() * ENTRY_BYTES;
+    }
+
+    @Override
+    public synchronized String toString() {
+	long lookups = hits + misses;
+	return String.format(Locale.ROOT, "Cache: %d hits, %d misses, hit rate %.1f%%, %d boards, about %.1f KB",
+			     hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, nextMoves.size(),
+			     getMemoryBytes() / 1024.0);
+    }
+}
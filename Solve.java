@@ -4,102 +4,44 @@
 
 import java.io.File;
 import java.util.Scanner;
-import java.util.PriorityQueue;
-import java.util.HashSet;
 import java.util.List;
 
 public class Solve {
+    // bytes of the filter a beam search remembers explored boards in, unless the command gives bytes=
+    // 16K bytes hold the few thousand boards a beam of 50 explores with under one false positive in 1000
+    public static final long DEFAULT_BEAM_FILTER_BYTES = 16 << 10;
 
     
     public static void main(String[] args) throws Exception{
-	// instantiate a puzzle board
-	State board = new State();
-	int maxNodes = -1; // default no max
+	// the puzzle board and settings that the commands act on
+	Session session = new Session(System.out);
 	
 	// create File and Scanner objects
 	File commands = new File(args[0]);
 	Scanner scan = new Scanner(commands);
 	
 	// read commands from file line by line
-	while (scan.hasNextLine()) {
-	    String commandLine = scan.nextLine();
-	    // randomizeState command
-	    if ( commandLine.toLowerCase().startsWith("randomizestate") ) {
-		// get number of steps to randomize to
-		int steps = Integer.parseInt(commandLine.substring("randomizeState".length() + 1));
-		board.randomize(steps);
-	    }
-
-	    // set state command
-	    else if ( commandLine.toLowerCase().startsWith("setstate") ) {
-		// get the parameter
-		String inputState = commandLine.substring("setState".length() + 1);
-		// popoulate 2D array
-		byte[][] inputBoard = new byte[3][3];
-		int counter = 0; 
-		for ( int i = 0; i < inputState.length(); i++ ) {
-		    char c = inputState.charAt(i);
-		    if ( c == 'b' ) {
-			inputBoard[counter/3][counter%3] = 0;
-			counter += 1;
-		    }
-		    else if ( c != ' ' ) {
-			inputBoard[counter/3][counter%3] = (byte) (Character.getNumericValue(c));
-			counter += 1;
-		    }
-		}
-		board = new State(inputBoard);
-	    }
-
-	    // solve A-star command
-	    else if ( commandLine.toLowerCase().startsWith("solve a-star") ) {
-		String heuristic = commandLine.substring("solve a-star".length() + 1);
-		board.evaluate(heuristic);
-		try { 
-		    int[] solution = solveAStar(board, heuristic, maxNodes);
-		}
-		catch (OutOfMemoryError e) {
-		    System.out.println("Ran out of memory.");
-		}
-	    }
+	while (scan.hasNextLine())
+	    session.execute(scan.nextLine(), System.nanoTime());
 
-	    // solve beam command
-	    else if ( commandLine.toLowerCase().startsWith("solve beam") ) {
-		int k = Integer.parseInt(commandLine.substring("solve beam".length() + 1));
-		board.evaluate("h2");
-		try {
-		    int[] solution = solveLocalBeamSearch(board, k, maxNodes);
-		}
-		catch (OutOfMemoryError e) {
-		    System.out.println("Ran out of memory.");
-		}
-	    }
-
-	    // maxNodes command
-	    else if ( commandLine.toLowerCase().startsWith("maxnodes") )
-		maxNodes = Integer.parseInt(commandLine.substring("maxnodes".length() + 1));
-
-	    // printState command
-	    else if ( commandLine.toLowerCase().startsWith("printstate") )
-		board.print();
+	System.out.println();
+	
+    }
 
-	    // move <direction> command
-	    else if ( commandLine.toLowerCase().startsWith("move") ) {
-		String direction = commandLine.substring("move".length() + 1);
-		if ( direction.equals("up") )
-		    board.moveUp();
-		else if ( direction.equals("down") )
-		    board.moveDown();
-		else if ( direction.equals("left") )
-		    board.moveLeft();
-		else if ( direction.equals("right") )
-		    board.moveRight();
-	    }
-	    
+    // Returns the value of the key=value option named key in arguments
+    // Returns defaultValue if the option is not given
+    public static String option(String[] arguments, String key, String defaultValue) {
+	for ( int i = 0; i < arguments.length; i++ ) {
+	    if ( arguments[i].toLowerCase().startsWith(key + "=") )
+		return arguments[i].substring(key.length() + 1);
 	}
+	return defaultValue;
+    }
 
-	System.out.println();
-	
+    // Solves the 8-puzzle using the A* algorithm with a binary heap frontier
+    // See solveAStar(State, Heuristic, int, Frontier, SearchStats)
+    public static int[] solveAStar(State startState, String heuristic, int maxNodes) {
+	return solveAStar(startState, Heuristic.forName(heuristic), maxNodes, new HeapFrontier(), new SearchStats());
     }
 
     // Solves the 8-puzzle using the A* algorithm
@@ -107,42 +49,192 @@ public class Solve {
     // First returned element is the number of moves to reach goal, -1 if no solution found
     // Second returned element is the number of nodes considered during search
     // Prints out the steps to reach goal
-    // Takes as input: the start state, the heuristic to use, maximum number of nodes to consider
-    // TODO: Implement maxnodes
-    public static int[] solveAStar(State startState, String heuristic, int maxNodes) {
+    // Takes as input: the start state, the heuristic to use, maximum number of nodes to consider,
+    // an empty frontier to hold the states waiting to be expanded, and the metrics to fill in
+    public static int[] solveAStar(State startState, Heuristic heuristic, int maxNodes, Frontier frontier,
+				   SearchStats stats) {
+	stats.start();
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
 	// initialize data structures
-	PriorityQueue<State> frontier = new PriorityQueue<State>();
-	HashSet<State> explored = new HashSet<State>();
+	LongHashSet explored = new LongHashSet();
+	// lowest path cost g(n) queued so far for each board, so that pushes that are not improvements can be skipped
+	LongIntHashMap openCosts = new LongIntHashMap();
 	int numStatesSeen = 0;
+	startState.evaluate(heuristic);
 	
 	frontier.add(startState);
+	openCosts.put(startState.getPackedBoard(), startState.getPackedBoardHigh(), startState.getPathCost());
 
 	// start loop
 	while ( ! frontier.isEmpty() ) {
 	    // if max nodes limit has been reached, stop search
+	    stats.nodesNeeded = numStatesSeen;
 	    if ( maxNodes > -1 && numStatesSeen > maxNodes ) {
-		System.out.println("Reach maximum number of nodes: " + maxNodes);
-		return new int[] {-1, numStatesSeen};
+		report(stats, "Reach maximum number of nodes: " + maxNodes);
+		return result(-1, numStatesSeen, stats);
+	    }
+	    // if the search was cancelled or ran out of time, stop search
+	    String stopReason = stats.stopReason();
+	    if ( stopReason != null ) {
+		report(stats, stopReason);
+		return result(-1, numStatesSeen, stats);
 	    }
 	    State currentState = frontier.poll(); // remove from queue
 	    // reached goal
 	    if ( currentState.isGoal() ) {
-		printMoves(currentState, currentState.getPath());
-		return new int[] {currentState.getPathCost(), numStatesSeen};
+		printMoves(currentState, currentState.getPath(), stats);
+		return result(currentState.getPathCost(), numStatesSeen, stats);
 	    }
-	    // if currentState has already been explored fully, don't bother looking at children
-	    if ( !explored.contains(currentState) ) {
-		explored.add(currentState);		
+	    // if currentState has already been explored fully, or was queued again with a lower path cost,
+	    // don't bother looking at children
+	    long currentBoard = currentState.getPackedBoard();
+	    long currentBoardHigh = currentState.getPackedBoardHigh();
+	    if ( !explored.contains(currentBoard, currentBoardHigh)
+		 && currentState.getPathCost() <= openCosts.get(currentBoard, currentBoardHigh, Integer.MAX_VALUE) ) {
+		explored.add(currentBoard, currentBoardHigh);		
 		// generate child states and add to the frontier queue
-		numStatesSeen += processChildren(currentState, heuristic, frontier, explored);
-	    }   
+		numStatesSeen += processChildren(currentState, heuristic, frontier, explored, openCosts, stats);
+		stats.updatePeaks(frontier.size(), explored.size());
+	    }
+	    else
+		stats.stalePops += 1;
 	}
 	// frontier is empty at end of while loop
 	// no solution
-	System.out.println("No solution found.");
-	return new int[] {-1, numStatesSeen};
+	report(stats, "No solution found.");
+	return result(-1, numStatesSeen, stats);
+    }
+
+    // Solves the 8-puzzle using the A* algorithm, answering from cache if it holds the solution
+    // See solveAStar(State, Heuristic, int, Frontier, SearchStats)
+    // Solutions are cached under the heuristic's name, and a solution answered from the cache
+    // considers no nodes, whatever the maximum number of nodes
+    // Uncached solutions that are found are added to the cache, if cache is not null
+    public static int[] solveAStar(State startState, Heuristic heuristic, int maxNodes, Frontier frontier,
+				   SearchStats stats, SolutionCache cache) {
+	if ( cache == null )
+	    return solveAStar(startState, heuristic, maxNodes, frontier, stats);
+	String config = "astar-" + heuristic;
+	stats.start();
+	// unsolvable boards are never cached, so they are answered without counting as misses
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
+	State goal = cache.get(startState, config);
+	if ( goal != null ) {
+	    stats.cacheHit = true;
+	    printMoves(goal, goal.getPath(), stats);
+	    return result(goal.getPathCost(), 0, stats);
+	}
+	int[] solution = solveAStar(startState, heuristic, maxNodes, frontier, stats);
+	if ( solution[0] > -1 )
+	    cache.put(startState, config, stats.getPath());
+	return solution;
+    }
+
+    // Stops the metrics of a search and returns its result
+    // Returns the int[] array {moves, numStatesSeen} that the solve methods return
+    private static int[] result(int moves, int numStatesSeen, SearchStats stats) {
+	stats.stop(moves);
+	return new int[] {moves, numStatesSeen};
+    }
+
+    // Reports a start state that cannot reach the goal state, see State.isSolvable()
+    // Returns the result of a search that stopped before considering any nodes
+    // The solve methods check this first, as a search would otherwise have to exhaust
+    // every board reachable from the start state before giving up
+    private static int[] unsolvable(SearchStats stats) {
+	report(stats, "No solution exists: the state has an odd number of inversions.");
+	return result(-1, 0, stats);
+    }
+
+    // Solves the 8-puzzle using A* within the limits of a budget, see BudgetedAStar
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes generated during search
+    // Prints out the steps to reach goal and which phase of the search found them
+    // Takes as input: the start state, the heuristic to use, the budget, and the metrics to fill in
+    public static int[] solveBudgetedAStar(State startState, Heuristic heuristic, Budget budget, SearchStats stats) {
+	stats.start();
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
+	int[] solution = new BudgetedAStar(budget, stats).solve(startState, heuristic);
+	stats.stop(solution[0]);
+	return solution;
     }
 
+    // Solves the 8-puzzle using hash distributed A* on several threads, see ParallelAStar
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal and the number of nodes expanded by each thread
+    // Takes as input: the start state, the heuristic to use, maximum number of nodes to consider,
+    // the number of threads to search with, and the metrics to fill in
+    public static int[] solveParallelAStar(State startState, Heuristic heuristic, int maxNodes, int threads,
+					   SearchStats stats) throws InterruptedException {
+	stats.start();
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
+	int[] solution = new ParallelAStar(threads, maxNodes).solve(startState, heuristic, stats);
+	stats.stop(solution[0]);
+	return solution;
+    }
+
+    // Solves the 8-puzzle using bidirectional A* between the start state and the goal state, see Bidirectional
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal
+    // Takes as input: the start state, the forward heuristic, maximum number of nodes to consider,
+    // and the metrics to fill in
+    public static int[] solveBidirectional(State startState, Heuristic heuristic, int maxNodes, SearchStats stats) {
+	stats.start();
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
+	int[] solution = new Bidirectional(heuristic, maxNodes, stats).solve(startState);
+	stats.stop(solution[0]);
+	return solution;
+    }
+
+    // Solves the 8-puzzle using iterative deepening A*, see IDAStar
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal
+    // Takes as input: the start state, the heuristic to use, maximum number of nodes to consider,
+    // and the metrics to fill in
+    public static int[] solveIDAStar(State startState, Heuristic heuristic, int maxNodes, SearchStats stats) {
+	stats.start();
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
+	int[] solution = new IDAStar(startState, heuristic, maxNodes, stats).solve();
+	stats.stop(solution[0]);
+	return solution;
+    }
+
+    // Solves the 8-puzzle using anytime repairing A* within a deadline, see AnytimeAStar
+    // Returns an int[] array
+    // First returned element is the number of moves to reach goal, -1 if no solution found
+    // Second returned element is the number of nodes considered during search
+    // Prints out the steps to reach goal and the bound on their suboptimality
+    // Takes as input: the start state, the heuristic to use, the weight of the first search,
+    // the number of milliseconds to answer within or -1 for no deadline, maximum number of nodes
+    // to consider, and the metrics to fill in
+    public static int[] solveAnytimeAStar(State startState, Heuristic heuristic, double weight, long deadlineMillis,
+					  int maxNodes, SearchStats stats) {
+	stats.start();
+	if ( deadlineMillis > -1 ) {
+	    // keep an earlier deadline the caller has already set
+	    long deadline = System.nanoTime() + deadlineMillis * 1000000;
+	    if ( stats.getDeadline() == -1 || deadline - stats.getDeadline() < 0 )
+		stats.setDeadline(deadline);
+	}
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
+	int[] solution = new AnytimeAStar(heuristic, weight, maxNodes, stats).solve(startState);
+	stats.stop(solution[0]);
+	return solution;
+    }
 
     // Solves the 8-puzzle using a local beam search that keeps track of k states
     // Returns an int[] array of two values
@@ -151,113 +243,125 @@ public class Solve {
     // Prints out the steps to reach goal
     // Starts from input startState
     // Uses heuristic h2
-    // TODO: Implement maxnodes
     public static int[] solveLocalBeamSearch(State startState, int k, int maxNodes) {
-	// initialize data structures
-	PriorityQueue<State> beam = new PriorityQueue<State>();
-	HashSet<State> explored = new HashSet<State>();
-	// set of all children generated from states in the beam
-	// implemented as a priority queue, so we can poll() k times to get the k best children
-	PriorityQueue<State> childSet = new PriorityQueue<State>();
-	int counter = 0; // counts from 0 to k
-	int numStatesSeen = 0;
-	
-	beam.add(startState);
+	return solveLocalBeamSearch(startState, k, maxNodes, new SearchStats());
+    }
 
-	// start loop
-	// terminate search when the beam is empty after children are added onto beam
-	while ( ! beam.isEmpty() ) {
-	    // reset childSet and counter
-	    childSet.clear();
-	    counter = 0;
+    // Solves the 8-puzzle using a local beam search that keeps track of k states
+    // See solveLocalBeamSearch(State, int, int)
+    // Also fills in the input metrics
+    // Expands the beam on one thread and remembers explored boards in DEFAULT_BEAM_FILTER_BYTES
+    public static int[] solveLocalBeamSearch(State startState, int k, int maxNodes, SearchStats stats) {
+	try {
+	    return solveLocalBeamSearch(startState, k, 1, DEFAULT_BEAM_FILTER_BYTES, maxNodes, stats);
+	}
+	catch (InterruptedException e) {
+	    throw new IllegalStateException("A single threaded search cannot be interrupted", e);
+	}
+    }
 
-	    // if max nodes limit has been reached, stop search
-	    if ( maxNodes > -1 && numStatesSeen > maxNodes ) {
-		System.out.println("Reach maximum number of nodes: " + maxNodes);
-		return new int[] {-1, numStatesSeen};
-	    }
-	    
-	    // generate children state for each state currently in the beam
-	    while ( ! beam.isEmpty() ) {
-		State currentState = beam.poll(); // remove from queue
-		// check if reached goal
-		if ( currentState.isGoal() ) {
-		    printMoves(currentState, currentState.getPath());
-		    return new int[] {currentState.getPathCost(), numStatesSeen};
-		}
-		
-		explored.add(currentState);
-		// add each child state to childSet as a "temporary" holder
-		numStatesSeen += processChildren(currentState, "h2", childSet, explored);
-	    } 
+    // Solves the 8-puzzle using a local beam search that keeps track of k states, see BeamSearch
+    // Returns an int[] array of two values
+    // First returned value is the number of moves to reach goal, -1 if no solution found
+    // Second returned value is the number of nodes considered during search
+    // Prints out the steps to reach goal
+    // Takes as input: the start state, the number of states to keep, the number of threads to expand
+    // them with, the number of bytes to remember explored boards in, maximum number of nodes to consider,
+    // and the metrics to fill in
+    // Uses heuristic h2
+    public static int[] solveLocalBeamSearch(State startState, int k, int threads, long filterBytes, int maxNodes,
+					     SearchStats stats) throws InterruptedException {
+	stats.start();
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
+	int[] solution = new BeamSearch(k, Heuristic.H2, threads, filterBytes, maxNodes, stats).solve(startState);
+	stats.stop(solution[0]);
+	return solution;
+    }
 
-	    // reset beam
-	    beam.clear();
-	    // fill beam with k best states from childSet
-	    while ( !childSet.isEmpty() && counter < k ) {
-		// get the best child state from childSet and remove it
-		State bestChild = childSet.poll();
-		// do not add child to beam if already explored
-		if ( !explored.contains(bestChild) ) {
-		    beam.add(bestChild);
-		    counter += 1;
-		}
-	    }
+    // Solves the 8-puzzle by looking up the precomputed optimal move of each board in a DistanceTable
+    // Returns an int[] array of two values
+    // First returned value is the number of moves to reach goal, -1 if no solution found
+    // Second returned value is the number of table lookups performed
+    // Prints out the steps to reach goal
+    // Starts from input startState and follows the best move of each board down to the goal
+    // Also fills in the input metrics, counting each board on the path as expanded
+    public static int[] solveTable(State startState, SearchStats stats) {
+	stats.start();
+	if ( !startState.isSolvable() )
+	    return unsolvable(stats);
+	if ( startState.getDimension() != 3 ) {
+	    report(stats, "The distance table only covers the 8-puzzle.");
+	    return result(-1, 0, stats);
 	}
-
-	// goal not found
-	System.out.println("Goal not found.");
-	return new int[] {-1, numStatesSeen};
+	DistanceTable table = DistanceTable.getInstance();
+	int numLookups = 1;
+	State currentState = startState.duplicate();
+	currentState.setPathCost(0);
+	while ( !currentState.isGoal() ) {
+	    currentState = currentState.child(table.bestMove(currentState));
+	    numLookups += 1;
+	    stats.nodesExpanded += 1;
+	    stats.nodesGenerated += 1;
+	}
+	printMoves(currentState, currentState.getPath(), stats);
+	return result(currentState.getPathCost(), numLookups, stats);
     }
 
-    // Takes as input a state, a heuristic, and a queue, and a hashset
+    // Takes as input a state, a heuristic, and a queue, a set of packed boards, the lowest path cost
+    // queued for each board (or null to not track them), and search metrics
     // Generates all the successor states of the input state and adds
-    // Adds the successor states into the queue if not already in hashset
+    // Adds the successor states into the queue if their boards are not already in the set,
+    // and, if openCosts is given, if they reach their board with a lower path cost than any queued state
+    // Counts the expansion, the generated children and the children dropped as duplicates in stats
     // Returns the number of children spawned that have not been seen before
-    public static int processChildren(State currentState, String heuristic, PriorityQueue<State> queue, HashSet<State> set) {
+    public static int processChildren(State currentState, Heuristic heuristic, Frontier queue, LongHashSet set,
+				      LongIntHashMap openCosts, SearchStats stats) {
 	int newChildren = 0;
+	int childCost = currentState.getPathCost() + 1;
+	stats.nodesExpanded += 1;
 	// generate children state from set of legal moves
-	boolean[] legal = currentState.legalMoves();
-	for ( int i = 0; i < legal.length; i++ ) {
-	    if ( legal[i] == true ) {
-		State childState = currentState.duplicate();
-		// perform move based on what's legal
-		if ( i == 0 ) {
-		    childState.moveUp();
-		    childState.addPathMove("up");
-		}
-		else if ( i == 1 ) {
-		    childState.moveDown();
-		    childState.addPathMove("down");
-		}
-		else if ( i == 2 ) {
-		    childState.moveLeft();
-		    childState.addPathMove("left");
-		}
-		else if ( i == 3 ) {
-		    childState.moveRight();
-		    childState.addPathMove("right");
-		}
-			
-		// increment path cost
-		childState.incrementPathCost();
+	int[] moves = currentState.moves();
+	for ( int i = 0; i < moves.length; i++ ) {
+	    stats.nodesGenerated += 1;
+	    // the child's board is checked before a state is created for it,
+	    // so children dropped as duplicates allocate nothing
+	    long childBoard = currentState.childBoard(moves[i]);
+	    long childBoardHigh = currentState.childBoardHigh(moves[i]);
+	    if ( set.contains(childBoard, childBoardHigh) )
+		stats.duplicateHits += 1;
+	    else if ( openCosts != null && childCost >= openCosts.get(childBoard, childBoardHigh, Integer.MAX_VALUE) )
+		stats.duplicateHits += 1; // the board is already queued at least as cheaply
+	    else {
+		// perform move
+		// the child records currentState as its parent and has path cost one higher
+		State childState = currentState.child(moves[i]);
 		// perform evaluation function on child
-		childState.evaluate(heuristic);
-
-		if ( !set.contains(childState) ) {
-		    queue.add(childState);
-		    newChildren += 1;
-		}
-		// Note: We don't have to deal with replacing a state already in frontier if childState has a lower cost, because the least costly path will surface up before the more costly path(s).
+		// the move already updated the child's heuristic value if currentState used the same heuristic
+		if ( childState.getHeuristic() != heuristic )
+		    childState.evaluate(heuristic);
+		if ( openCosts != null )
+		    openCosts.put(childBoard, childBoardHigh, childCost);
+		queue.add(childState);
+		newChildren += 1;
 	    }
+	    // Note: A cheaper path to a queued board is queued as well instead of replacing the queued state, and the more costly state is skipped when it surfaces.
 	}
 	return newChildren;
     }
 
     // Prints the moves needed to go from start state to current state, given the list of states along the optimal path
-    public static void printMoves(State state, List<String> path) {
-	System.out.println("Number of moves: " + state.getPathCost());
-	System.out.println(path);
+    // Also records the moves in the metrics of the search, and does not print them if the search is quiet
+    public static void printMoves(State state, List<String> path, SearchStats stats) {
+	stats.setPath(path);
+	// printed as one line so that solutions from parallel searches do not interleave
+	report(stats, "Number of moves: " + state.getPathCost() + System.lineSeparator() + path);
+    }
+
+    // Prints a message about a search, unless the search is quiet, see SearchStats.setQuiet()
+    public static void report(SearchStats stats, String message) {
+	if ( !stats.isQuiet() )
+	    stats.getOut().println(message);
     }
 
 	
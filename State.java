@@ -1,25 +1,63 @@
+import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.PriorityQueue;
 import java.util.List;
 import java.util.LinkedList;
 import java.util.Random;
 
-// Represents the state of an 8-puzzle board
+// Represents the state of a sliding puzzle board of 2x2 to 5x5 cells, the 8-puzzle by default
 
 
-public class State implements Comparable {
-    // 2D array representation of the current state
-    // 1-8 represent the numbers
+public class State implements Comparable<State> {
+    // Packed representation of the current state
+    // Cell (i,j) is stored in the 4 bits starting at bit 4 * (i*dimension + j)
+    // 1 to dimension*dimension-1 represent the numbers
     // 0 represents the blank
-    private byte[][] board;
-    private final int DIMENSION = 3;
+    // The 16 cells of a 4x4 board fill the whole long, so the blank cell is kept in its own field
+    // A 5x5 board needs 5 bits per cell, 125 bits in all: cell i is stored in the 5 bits starting
+    // at bit 5 * i of the 128 bit number with board as its low half and boardHigh as its high half
+    private long board;
+    // high half of the packed board of a 5x5 board, 0 for smaller boards
+    private long boardHigh;
+    // index of the blank cell
+    private byte blank;
+    // number of rows and of columns
+    private final byte dimension;
+
+    // board sizes that fit in the packed board
+    public static final int MIN_DIMENSION = 2;
+    public static final int MAX_DIMENSION = 5;
+    // boards of this size and larger use both halves of the packed board
+    public static final int WIDE_DIMENSION = 5;
+    // bit layout of the packed board
+    private static final int TILE_BITS = 4;
+    private static final long TILE_MASK = 0xFL;
+    private static final int WIDE_TILE_BITS = 5;
+    private static final long WIDE_TILE_MASK = 0x1FL;
+
+    // goal state of each board size, indexed by dimension
+    // The blank is in the top left cell and tile t is in cell t, as in
+    //   0 1 2
+    //   3 4 5
+    //   6 7 8
+    private static final long[] GOAL_BOARD = new long[MAX_DIMENSION + 1];
+    private static final long[] GOAL_BOARD_HIGH = new long[MAX_DIMENSION + 1];
+    // lowest bit of every cell of each board size, used to count nonzero cells in a single pass
+    // Only used below WIDE_DIMENSION
+    private static final long[] CELL_LOW_BITS = new long[MAX_DIMENSION + 1];
+    static {
+	for ( int n = MIN_DIMENSION; n <= MAX_DIMENSION; n++ ) {
+	    for ( int cell = 0; cell < n * n; cell++ ) {
+		GOAL_BOARD[n] = putTile(GOAL_BOARD[n], n, cell, cell);
+		GOAL_BOARD_HIGH[n] = putTileHigh(GOAL_BOARD_HIGH[n], n, cell, cell);
+		if ( n < WIDE_DIMENSION )
+		    CELL_LOW_BITS[n] |= 1L << (cell * TILE_BITS);
+	    }
+	}
+    }
 
-    // keeps track of blank position
-    private int[] blank;
-    // 2D array representation of the goal state
-    private static final byte[][] GOAL = { {0, 1, 2},
-				   {3, 4, 5},
-				   {6, 7, 8} };
+    // seed used by every board's random number generator
+    private static final long SEED = 112209913;
 
     // number of moves it took to go from start state to this node
     // g(n) component of the evaluation function
@@ -27,77 +65,322 @@ public class State implements Comparable {
     private int pathCost;
     // heuristic value h(n)
     private int estimatedCost;
-
-    // a list of the previous moves start to this state
-    List<String> path;
+    // heuristic that estimatedCost was computed with, null if none has been evaluated
+    // moves keep estimatedCost up to date for this heuristic
+    private Heuristic heuristic;
+
+    // the state this state was generated from, null for a start state
+    // together with lastMove this encodes the path from the start state
+    private State parent;
+    // code of the move that produced this state from its parent
+    private byte lastMove;
+
+    // move codes, in the same order as legalMoves()
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+    // names of the moves, indexed by move code
+    private static final String[] MOVE_NAMES = {"up", "down", "left", "right"};
+
+    // MOVES[dimension][blank] lists the codes of the legal moves when the blank is at cell blank,
+    // in the same order as legalMoves(), so successors are generated without testing every direction
+    private static final int[][][] MOVES = new int[MAX_DIMENSION + 1][][];
+    // LEGAL[dimension][blank] has bit m set if move code m is legal when the blank is at cell blank
+    private static final byte[][] LEGAL = new byte[MAX_DIMENSION + 1][];
+    static {
+	for ( int n = MIN_DIMENSION; n <= MAX_DIMENSION; n++ ) {
+	    MOVES[n] = new int[n * n][];
+	    LEGAL[n] = new byte[n * n];
+	    for ( int cell = 0; cell < n * n; cell++ ) {
+		int[] moves = new int[4];
+		int count = 0;
+		if ( cell / n != 0 )
+		    moves[count++] = UP;
+		if ( cell / n != n - 1 )
+		    moves[count++] = DOWN;
+		if ( cell % n != 0 )
+		    moves[count++] = LEFT;
+		if ( cell % n != n - 1 )
+		    moves[count++] = RIGHT;
+		MOVES[n][cell] = Arrays.copyOf(moves, count);
+		for ( int i = 0; i < count; i++ )
+		    LEGAL[n][cell] |= 1 << moves[i];
+	    }
+	}
+    }
 
     // random number generator
-    Random randGenerator = new Random(112209913);
+    // created on the first call to randomize() so that search nodes do not pay for it
+    Random randGenerator;
 
     // Default Constructor
-    // Initializes the state to the goal state.
+    // Initializes the state to the goal state of the 8-puzzle.
     public State() {
-	board = new byte[][] { {0, 1, 2},
-			      {3, 4, 5},
-			      {6, 7, 8} };
-	blank = new int[] {0, 0};
+	this(3);
+    }
+
+    // Overloaded Constructor
+    // Initializes the state to the goal state of a board with the input number of rows and columns
+    public State(int dimension) {
+	if ( dimension < MIN_DIMENSION || dimension > MAX_DIMENSION )
+	    throw new IllegalArgumentException("Unsupported board size: " + dimension + "x" + dimension);
+	this.dimension = (byte) dimension;
+	board = GOAL_BOARD[dimension];
+	boardHigh = GOAL_BOARD_HIGH[dimension];
+	blank = 0;
 	pathCost = 0;
 	estimatedCost = 0;
-	path = new LinkedList<String>();
     }
 
     // Overloaded Constructor
-    // Initializes the state of the board to the 2D array passed in
-    // Peforms a deep copy on the 2D array
+    // Initializes the state of the board to the square 2D array passed in
+    // Packs the 2D array, so later changes to it do not affect this state
     public State(byte[][] copyBoard) {
-	board = new byte[DIMENSION][DIMENSION];
-	for ( int i = 0; i < DIMENSION; i++ ) {
-	    for ( int j = 0; j < DIMENSION; j++ ) {
+	this(copyBoard.length);
+	board = 0;
+	boardHigh = 0;
+	for ( int i = 0; i < dimension; i++ ) {
+	    for ( int j = 0; j < dimension; j++ ) {
+		int cell = i * dimension + j;
 		if ( copyBoard[i][j] == 0 ) // found blank position
-		    blank = new int[] {i, j}; // copy blank position
-		// copy element
-		board[i][j] = copyBoard[i][j];
+		    blank = (byte) cell;
+		board = putTile(board, dimension, copyBoard[i][j], cell);
+		boardHigh = putTileHigh(boardHigh, dimension, copyBoard[i][j], cell);
 	    }
 	}
+    }
+
+    // Copy constructor used by duplicate()
+    // Copies the packed board without unpacking it
+    private State(long board, long boardHigh, int blank, byte dimension) {
+	this.board = board;
+	this.boardHigh = boardHigh;
+	this.blank = (byte) blank;
+	this.dimension = dimension;
 	pathCost = 0;
 	estimatedCost = 0;
-	path = new LinkedList<String>();
-	
+    }
+
+    // Parses a board written as in the setState command
+    // The tiles are either separated by spaces, as in "1 2 3 b 4 5 6 7 8 9 10 11 12 13 14 15",
+    // or written one character each, with spaces ignored, as in "b12 345 678"
+    // 'b' or 0 is the blank, and the number of tiles gives the size of the board
+    // Throws IllegalArgumentException if the tiles are not each of 0 to n*n-1 exactly once
+    public static State parse(String input) {
+	String[] tiles = input.trim().split("\\s+");
+	if ( sizeOf(tiles.length) < MIN_DIMENSION )
+	    tiles = input.replace(" ", "").split("");
+	int dimension = sizeOf(tiles.length);
+	if ( dimension < MIN_DIMENSION || dimension > MAX_DIMENSION )
+	    throw new IllegalArgumentException("Wrong number of tiles in state: " + input);
+	byte[][] grid = new byte[dimension][dimension];
+	int seen = 0; // bit t is set once tile t has been read
+	for ( int i = 0; i < tiles.length; i++ ) {
+	    int tile;
+	    try {
+		tile = tiles[i].equals("b") ? 0 : Integer.parseInt(tiles[i]);
+	    }
+	    catch (NumberFormatException e) {
+		tile = -1;
+	    }
+	    if ( tile < 0 || tile >= tiles.length )
+		throw new IllegalArgumentException("Invalid tile '" + tiles[i] + "' in state: " + input);
+	    if ( (seen & (1 << tile)) != 0 )
+		throw new IllegalArgumentException("Repeated tile '" + tiles[i] + "' in state: " + input);
+	    seen |= 1 << tile;
+	    grid[i / dimension][i % dimension] = (byte) tile;
+	}
+	return new State(grid);
+    }
+
+    // Returns the number of rows of a square board of the input number of cells, -1 if there is none
+    private static int sizeOf(int cells) {
+	int dimension = (int) Math.round(Math.sqrt(cells));
+	return dimension * dimension == cells ? dimension : -1;
+    }
+
+    // Returns the tile at the given cell index
+    int tileAt(int cell) {
+	return tileAt(board, boardHigh, dimension, cell);
+    }
+
+    // Returns the tile at the given cell index of the packed board with halves board and boardHigh
+    static int tileAt(long board, long boardHigh, int dimension, int cell) {
+	if ( dimension < WIDE_DIMENSION )
+	    return (int) ((board >>> (cell * TILE_BITS)) & TILE_MASK);
+	int bit = cell * WIDE_TILE_BITS;
+	if ( bit >= Long.SIZE )
+	    return (int) ((boardHigh >>> (bit - Long.SIZE)) & WIDE_TILE_MASK);
+	// the cell starting at bit 60 continues into the high half
+	long bits = board >>> bit;
+	if ( bit > 0 )
+	    bits |= boardHigh << (Long.SIZE - bit);
+	return (int) (bits & WIDE_TILE_MASK);
+    }
+
+    // Returns the low half of a packed board after tile moves from cell from to cell to, where the blank is
+    static long moveTile(long board, int dimension, long tile, int from, int to) {
+	if ( dimension < WIDE_DIMENSION )
+	    return board - (tile << (from * TILE_BITS)) + (tile << (to * TILE_BITS));
+	// both cells hold the tile or 0, so exclusive or clears the old cell and fills the new one
+	return board ^ lowBits(tile, from * WIDE_TILE_BITS) ^ lowBits(tile, to * WIDE_TILE_BITS);
+    }
+
+    // Returns the high half of a packed board after tile moves from cell from to cell to, where the blank is
+    static long moveTileHigh(long boardHigh, int dimension, long tile, int from, int to) {
+	if ( dimension < WIDE_DIMENSION )
+	    return boardHigh;
+	return boardHigh ^ highBits(tile, from * WIDE_TILE_BITS) ^ highBits(tile, to * WIDE_TILE_BITS);
+    }
+
+    // Returns the low half of a packed board with tile put in cell, which holds 0
+    private static long putTile(long board, int dimension, long tile, int cell) {
+	if ( dimension < WIDE_DIMENSION )
+	    return board | (tile << (cell * TILE_BITS));
+	return board | lowBits(tile, cell * WIDE_TILE_BITS);
+    }
+
+    // Returns the high half of a packed board with tile put in cell, which holds 0
+    private static long putTileHigh(long boardHigh, int dimension, long tile, int cell) {
+	if ( dimension < WIDE_DIMENSION )
+	    return boardHigh;
+	return boardHigh | highBits(tile, cell * WIDE_TILE_BITS);
+    }
+
+    // Returns the bits of tile stored at bit of a wide packed board that fall in its low half
+    private static long lowBits(long tile, int bit) {
+	return bit < Long.SIZE ? tile << bit : 0;
+    }
+
+    // Returns the bits of tile stored at bit of a wide packed board that fall in its high half
+    private static long highBits(long tile, int bit) {
+	if ( bit >= Long.SIZE )
+	    return tile << (bit - Long.SIZE);
+	// tiles below the cell starting at bit 60 are shifted out entirely
+	return bit == 0 ? 0 : tile >>> (Long.SIZE - bit);
+    }
+
+    // Returns the index of the blank cell
+    int getBlankCell() {
+	return blank;
+    }
+
+    // Returns the number of rows, which is also the number of columns
+    public int getDimension() {
+	return dimension;
+    }
+
+    // Returns the number of cells
+    public int getCells() {
+	return dimension * dimension;
     }
 
     // Returns a new State object represnting the same board configuration as this State
-    // The path cost g(n) is also duplicated
+    // The path cost g(n) and the path are also duplicated
     // Note: Heuristic values do not need to be copied over to duplicate states. 
     public State duplicate() {
-	State newState = new State(board); // copies 2D array
+	State newState = new State(board, boardHigh, blank, dimension); // copies packed board
 	newState.setPathCost(this.getPathCost()); // copies over path cost
-	newState.setPath(this.getPath());
+	newState.parent = parent; // shares the path, which is never modified
+	newState.lastMove = lastMove;
 	return newState;
     }
 
+    // Returns the successor state reached by performing the input move code on this state
+    // The successor points back to this state instead of copying the path,
+    // so generating it takes constant time and memory regardless of depth
+    public State child(int move) {
+	State childState = new State(board, boardHigh, blank, dimension);
+	// the child starts from this state's heuristic value and updates it during the move
+	childState.heuristic = heuristic;
+	childState.estimatedCost = estimatedCost;
+	childState.move(move);
+	childState.setPathCost(pathCost + 1);
+	childState.parent = this;
+	childState.lastMove = (byte) move;
+	return childState;
+    }
+
+    // Returns the codes of the legal moves from this state, in the same order as legalMoves()
+    // The array is shared by every state with the blank in the same cell and must not be modified
+    public int[] moves() {
+	return MOVES[dimension][blank];
+    }
+
+    // Returns the packed board of the successor reached by performing the input legal move code,
+    // without creating the successor, so that searches can check it before allocating a state
+    // On a 5x5 board this is only the low half, see childBoardHigh()
+    public long childBoard(int move) {
+	int to = blank + offset(move);
+	return moveTile(board, dimension, tileAt(to), to, blank);
+    }
+
+    // Returns the high half of the packed board of the successor reached by performing the input
+    // legal move code, 0 below WIDE_DIMENSION
+    public long childBoardHigh(int move) {
+	if ( dimension < WIDE_DIMENSION )
+	    return 0;
+	int to = blank + offset(move);
+	return moveTileHigh(boardHigh, dimension, tileAt(to), to, blank);
+    }
+
+    // Returns the change in the blank's cell index made by the input move code
+    private int offset(int move) {
+	if ( move == UP )
+	    return -dimension;
+	else if ( move == DOWN )
+	    return dimension;
+	else if ( move == LEFT )
+	    return -1;
+	else
+	    return 1;
+    }
+
     // Returns true if the current state matches the goal state
     // Returns false otherwise
     public boolean isGoal() {
-	for ( int i = 0; i < DIMENSION; i++ ) {
-	    for ( int j = 0; j < DIMENSION; j++ ) {
-		if ( board[i][j] != GOAL[i][j] )
-		    return false;
+	return board == GOAL_BOARD[dimension] && boardHigh == GOAL_BOARD_HIGH[dimension];
+    }
+
+    // Returns true if the goal state can be reached from this state
+    // A horizontal move keeps the order of the tiles read row by row, and a vertical move passes
+    // a tile over dimension-1 others. On a board of odd width that keeps the parity of the number of
+    // inversions; on a board of even width it flips it as the blank changes row, so the parity of
+    // inversions plus the blank's row is kept. The goal state has no inversions and the blank in row 0,
+    // so a board where that sum is odd cannot be solved
+    // Counts the inversions in one pass, keeping the tiles already read as a bit set
+    public boolean isSolvable() {
+	int seen = 0;
+	int inversions = dimension % 2 == 0 ? blank / dimension : 0;
+	for ( int cell = 0; cell < getCells(); cell++ ) {
+	    int tile = tileAt(cell);
+	    if ( tile != 0 ) {
+		// tiles read before this one that are larger than it
+		inversions += Integer.bitCount(seen >>> (tile + 1));
+		seen |= 1 << tile;
 	    }
 	}
-	return true;
+	return (inversions & 1) == 0;
     }
 
-    
     // Returns the value of the A* evaluation function f(n) on this state
     // f(n) = g(n) + h(n)
-    // Uses the heuristic specified by input
+    // Uses the heuristic named by input
     // Note: Calling this method recomputes the heuristic value
     public int evaluate(String heuristic) {
-	if ( heuristic.equals("h1") )
-	    estimatedCost = calculateH1();
-	else if ( heuristic.equals("h2") )
-	    estimatedCost = calculateH2();
+	return evaluate(Heuristic.forName(heuristic));
+    }
 
+    // Returns the value of the A* evaluation function f(n) on this state
+    // f(n) = g(n) + h(n)
+    // Uses the heuristic specified by input
+    // Note: Calling this method recomputes the heuristic value, later moves update it incrementally
+    // Throws IllegalArgumentException if the heuristic does not cover this board, leaving the state unchanged
+    public int evaluate(Heuristic heuristic) {
+	int estimate = heuristic.estimate(this);
+	this.heuristic = heuristic;
+	estimatedCost = estimate;
 	return pathCost + estimatedCost;
     }
 
@@ -106,46 +389,49 @@ public class State implements Comparable {
     // Used in priority queue contains()
     @Override
     public boolean equals(Object other) {
-	byte[][] otherBoard = ((State) other).getBoard();
-	for ( int i = 0; i < DIMENSION; i++ ) {
-	    for ( int j = 0; j < DIMENSION; j++ ) {
-		if ( board[i][j] != otherBoard[i][j] )
-		    return false;
-	    }
-	}
-	return true;
+	return board == ((State) other).getPackedBoard() && boardHigh == ((State) other).getPackedBoardHigh();
     }
 
     // Must override hashcode so that works with HashSet
+    // Mixes the packed board so that neighbouring boards spread across buckets
     @Override
     public int hashCode() {
-	int hash = 0;
-	for ( int i = 0; i < DIMENSION; i++ ) {
-	    for ( int j = 0; j < DIMENSION; j++ ) {
-		hash += (i+1) * (j+1) * board[i][j] * Math.pow(1, i+j);
-	    }
-	}
-	return hash;
+	long hash = mix(board, boardHigh);
+	return (int) (hash ^ (hash >>> 32));
+    }
+
+    // Returns a hash of the packed board with halves board and boardHigh, whose high bits depend on every bit
+    // Used by every hash table keyed on packed boards, so that neighbouring boards spread out
+    // A high half of 0 gives the same hash as the low half alone
+    static long mix(long board, long boardHigh) {
+	return (board ^ boardHigh * 0xC2B2AE3D27D4EB4FL) * 0x9E3779B97F4A7C15L;
     }
     
     // Used to order states in priority queue
-    public int compareTo(Object other) {
+    public int compareTo(State other) {
 	return (this.pathCost + this.estimatedCost)
-	    - (((State) other).getPathCost() + ((State) other).getEstimatedCost());
+	    - (other.pathCost + other.estimatedCost);
     }
     
     // Calculates the h1 hueristic for the board state
     // Sum of the number of misplaced tiles
     public int calculateH1() {
-	int error = 0; // number of misplaced tiles
-	
-	for ( int i = 0; i < board.length; i++ ) {
-	    for ( int j = 0; j < board.length; j++ ) {
-		// compare board value at (i,j) to the supposed value at (i,j) of the goal state
-		if ( board[i][j] != 0 && board[i][j] != GOAL[i][j] )
+	if ( dimension >= WIDE_DIMENSION ) {
+	    int error = 0;
+	    for ( int cell = 1; cell < getCells(); cell++ ) {
+		if ( tileAt(cell) != cell )
 		    error += 1;
 	    }
+	    return error;
 	}
+	// a cell is nonzero in diff exactly when it differs from the goal state
+	long diff = board ^ GOAL_BOARD[dimension];
+	// fold each 4-bit cell onto its lowest bit
+	long misplaced = (diff | (diff >>> 1) | (diff >>> 2) | (diff >>> 3)) & CELL_LOW_BITS[dimension];
+	int error = Long.bitCount(misplaced); // number of misplaced cells
+	// the blank is not a tile, so its cell does not count as misplaced
+	if ( blank != 0 )
+	    error -= 1;
 	return error;
     }
 
@@ -153,26 +439,47 @@ public class State implements Comparable {
     // Sum of distances of the tiles from their goal position
     public int calculateH2() {
 	int error = 0; // sum of misplaced distances
+	if ( dimension >= WIDE_DIMENSION ) {
+	    for ( int cell = 0; cell < getCells(); cell++ )
+		error += Heuristic.H2.cost(dimension, tileAt(cell), cell);
+	    return error;
+	}
+	long tiles = board;
 
-	for ( int i = 0; i < board.length; i++ ) {
-	    for ( int j = 0; j < board.length; j++ ) {
-		if ( board[i][j] != 0 ) { // do not calculate Manhattan distance for zero
-		    // the goal position of the tile that is currently at position (i,j) 
-		    int[] goalPosition = { (board[i][j]) / 3, (board[i][j]) % 3 };
-		    // calculate distance between (i,j) and goal position of this element
-		    error += Math.abs( goalPosition[0] - i ) + Math.abs( goalPosition[1] - j );
-		}
-	    }
+	for ( int cell = 0; cell < getCells(); cell++ ) {
+	    // distance between cell and goal position of the tile at cell
+	    // the blank has cost zero, so it adds nothing
+	    error += Heuristic.H2.cost(dimension, (int) (tiles & TILE_MASK), cell);
+	    tiles >>>= TILE_BITS;
 	}
 	return error;
     }
 
     // Accessor method
     // Returns the 2D board array
+    // The array is a copy, so changing it does not change this state
     public byte[][] getBoard() {
+	byte[][] grid = new byte[dimension][dimension];
+	for ( int i = 0; i < dimension; i++ ) {
+	    for ( int j = 0; j < dimension; j++ )
+		grid[i][j] = (byte) tileAt(i * dimension + j);
+	}
+	return grid;
+    }
+
+    // Accessor method
+    // Returns the packed board, which uniquely identifies the board configuration among boards of its size
+    // On a 5x5 board this is only the low half, which identifies it together with getPackedBoardHigh()
+    public long getPackedBoard() {
 	return board;
     }
 
+    // Accessor method
+    // Returns the high half of the packed board, 0 below WIDE_DIMENSION
+    public long getPackedBoardHigh() {
+	return boardHigh;
+    }
+
     // Accessor method
     // Returns path cost from start node to this node g(n)
     public int getPathCost() {
@@ -181,15 +488,53 @@ public class State implements Comparable {
 
     // Accessor method
     // Returns the list of moves from start to current state
+    // The list is built by walking the parent links back to the start state
     public List<String> getPath() {
+	LinkedList<String> path = new LinkedList<String>();
+	for ( State s = this; s.parent != null; s = s.parent )
+	    path.addFirst(MOVE_NAMES[s.lastMove]);
 	return path;
     }
 
+    // Returns the code of the move named by input, as in the lists returned by getPath()
+    // Throws IllegalArgumentException if there is no such move
+    public static int moveCode(String name) {
+	for ( int move = 0; move < MOVE_NAMES.length; move++ ) {
+	    if ( MOVE_NAMES[move].equals(name) )
+		return move;
+	}
+	throw new IllegalArgumentException("Unknown move: " + name);
+    }
+
+    // Returns the name of the input move code, as in the lists returned by getPath()
+    public static String moveName(int move) {
+	return MOVE_NAMES[move];
+    }
+
     // Accessor method
     // Returns estimated cost based on heuristic
     public int getEstimatedCost() {
 	return estimatedCost;
     }
+
+    // Accessor method
+    // Returns the heuristic estimatedCost was computed with, null if none has been evaluated
+    public Heuristic getHeuristic() {
+	return heuristic;
+    }
+
+    // Accessor method
+    // Returns the state this state was generated from, null for a start state
+    public State getParent() {
+	return parent;
+    }
+
+    // Accessor method
+    // Returns the code of the move that produced this state from its parent
+    // Only meaningful if the state has a parent
+    public int getLastMove() {
+	return lastMove;
+    }
     
     // Mutator method
     // Sets path cost g(n) to input parameter
@@ -199,6 +544,14 @@ public class State implements Comparable {
 	return pathCost;
     }
 
+    // Mutator method
+    // Sets the heuristic value h(n) to input parameter
+    // Used for heuristics computed outside of the Heuristic enum, so moves no longer update it
+    public void setEstimatedCost(int h) {
+	estimatedCost = h;
+	heuristic = null;
+    }
+
     // Increments the path cost g(n) by 1
     // Returns the new path cost
     public int incrementPathCost() {
@@ -206,112 +559,120 @@ public class State implements Comparable {
 	return pathCost;
     }
 
-    // Mutator method
-    // Sets path to the list input
-    // Performs a shallow copy
-    private void setPath(List<String> oldPath) {
-	path = new LinkedList<String>(oldPath);
-    }
-
-    // Adds the move specified by input into the path list
-    public void addPathMove(String move) {
-	path.add(move);
-    }
     
 
     // Takes as input int n
     // Randomizes the board by performing n random legal moves
+    // Uses this board's own random number generator, seeded with SEED
     public void randomize(int n) {
+	if ( randGenerator == null )
+	    randGenerator = new Random(SEED);
+	randomize(n, randGenerator);
+    }
+
+    // Takes as input int n and a random number generator
+    // Randomizes the board by performing n random legal moves chosen with randGenerator
+    public void randomize(int n, Random randGenerator) {
 	for ( ; n > 0; n-- ) {
-	    // count number of legal moves
-	    boolean[] legal = legalMoves();
-	    int numLegalMoves = 0;
-	    for ( int i = 0; i < 4; i++ ) {
-		if ( legal[i] )
-		    numLegalMoves += 1;
-	    }
-	    // random integer from 0 to numLegalMoves-1 inclusive
-	    int randInt = (int) (randGenerator.nextDouble() * numLegalMoves);
-	    //int randInt = (int) (Math.random() * numLegalMoves); // use this if you don't want to explicitly seed random number generator
-	    
-	    // choose a random move from legal moves based on randInt
-	    // custom counting method to "skip over" the illegal moves
-	    int counter = -1;
-	    while (randInt >= 0) {
-		counter += 1;
-		if ( legal[counter] )
-		    randInt -= 1;
-	    } // at completion of while loop, counter corresponds to our random move
-
-	    if ( counter == 0 )
-		moveUp();
-	    else if ( counter == 1 )
-		moveDown();
-	    else if ( counter == 2 )
-		moveLeft();
-	    else if ( counter == 3 )
-		moveRight();
+	    // legal moves, in the same order as legalMoves()
+	    int[] moves = moves();
+	    // random integer from 0 to number of legal moves-1 inclusive
+	    int randInt = (int) (randGenerator.nextDouble() * moves.length);
+	    //int randInt = (int) (Math.random() * moves.length); // use this if you don't want to explicitly seed random number generator
+
+	    move(moves[randInt]);
 	}
     }
+
+    // Moves the blank tile in the direction given by the input move code
+    // Throws IllegalArgumentException if the move is not legal, leaving the board unchanged
+    public void move(int move) {
+	slideBlank(move);
+    }
 	    
 	    
     
     // Moves the blank tile up
     public void moveUp() {
-	swap(blank[0], blank[1], blank[0]-1, blank[1]);
-	// update blank position
-	blank[0] -= 1;
+	slideBlank(UP);
     }
 
     // Moves the blank tile down
     public void moveDown() {
-	swap(blank[0], blank[1], blank[0]+1, blank[1]);
-	blank[0] += 1;
+	slideBlank(DOWN);
     }
 
     // Moves the blank tile left
     public void moveLeft() {
-	swap(blank[0], blank[1], blank[0], blank[1]-1);
-	blank[1] -= 1;
+	slideBlank(LEFT);
     }
 
     // Moves the blank tile right
     public void moveRight() {
-	swap(blank[0], blank[1], blank[0], blank[1]+1);
-	blank[1] += 1;
+	slideBlank(RIGHT);
+    }
+
+    // Returns true if the blank can move in the direction given by the input move code
+    // Unlike legalMoves() this does not create an array
+    // Returns false for codes that are not move codes
+    public boolean canMove(int move) {
+	return move >= 0 && move < MOVE_NAMES.length && (LEGAL[dimension][blank] & (1 << move)) != 0;
     }
 
     // Returns a boolean array of 4 values
     // [up, down, left, right]
     // array element is true if moving in that direction is legal
     public boolean[] legalMoves() {
+	int blank = getBlankCell();
 	boolean[] legal = {true, true, true, true};
-	if (blank[0] == 0) // blank in first row
+	if (blank / dimension == 0) // blank in first row
 	    legal[0] = false;
-	if (blank[0] == 2) // blank in last row
+	if (blank / dimension == dimension - 1) // blank in last row
 	    legal[1] = false;
-	if (blank[1] == 0) // blank in first column
+	if (blank % dimension == 0) // blank in first column
 	    legal[2] = false;
-	if (blank[1] == 2) // blank in last column
+	if (blank % dimension == dimension - 1) // blank in last column
 	    legal[3] = false;
 
 	return legal;
     }
     
-    // swaps the tiles at position x1, y1 and x2, y2
-    private void swap(int x1, int y1, int x2, int y2) {
-	byte tmp = board[x1][y1];
-	board[x1][y1] = board[x2][y2];
-	board[x2][y2] = tmp;
+    // Moves the blank in the direction given by the input move code, swapping it with the tile it lands on
+    // Throws IllegalArgumentException if the move is not legal, or the heuristic kept up to date does not
+    // cover this board, before changing anything
+    // The blank cell always holds 0, so the swap only has to move the tile's bits
+    // The tile moves from the blank's new cell to its old cell, which is the only change
+    // the heuristic value needs to account for
+    // The arithmetic wraps around for tiles in the top bits of a 4x4 board, which still gives the right bits
+    private void slideBlank(int move) {
+	if ( !canMove(move) )
+	    throw new IllegalArgumentException("Illegal move: " + (move >= 0 && move < MOVE_NAMES.length
+								 ? MOVE_NAMES[move] : String.valueOf(move)));
+	if ( heuristic != null && !heuristic.covers(dimension) )
+	    throw new IllegalArgumentException("The " + heuristic + " heuristic does not cover "
+					       + dimension + "x" + dimension + " boards");
+	int from = blank;
+	int to = from + offset(move);
+	int tile = tileAt(to);
+	board = moveTile(board, dimension, tile, to, from);
+	boardHigh = moveTileHigh(boardHigh, dimension, tile, to, from);
+	blank = (byte) to;
+	if ( heuristic != null )
+	    estimatedCost = heuristic.update(this, estimatedCost, tile, to, from);
     }
     
     public void print() {
-	for ( int i = 0; i < board.length; i++ ) {
-	    for ( int j = 0; j < board[i].length; j++ )
-		System.out.print(board[i][j] + "\t");
-	    System.out.println();
+	print(System.out);
+    }
+
+    // Prints the board to out, one row per line
+    public void print(PrintStream out) {
+	for ( int i = 0; i < dimension; i++ ) {
+	    for ( int j = 0; j < dimension; j++ )
+		out.print(tileAt(i * dimension + j) + "\t");
+	    out.println();
 	}
-	System.out.println();
+	out.println();
     }
     
     public static void main(String[] args) {
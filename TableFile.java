@@ -0,0 +1,65 @@
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+// A table of bytes kept in a binary file after a 4 byte magic number that identifies its format
+// The table is generated on first use, saved, and memory-mapped on later runs
+// Used by DistanceTable and PatternDatabase
+
+class TableFile {
+    private TableFile() {
+    }
+
+    // Maps the table of size bytes from fileName, generating it with generator and saving it first
+    // if the file is missing, has the wrong size, or does not start with magic
+    // If the file cannot be written the generated table is kept in memory only, and a message
+    // naming the table by description is printed to standard error
+    static ByteBuffer load(String fileName, int magic, int size, String description, Supplier<byte[]> generator) {
+	Path path = Paths.get(fileName);
+	byte[] generated = null;
+	try {
+	    ByteBuffer table = map(path, magic, size);
+	    if ( table != null )
+		return table;
+	    // the file is missing or was written by an incompatible version, so replace it
+	    generated = generator.get();
+	    save(path, magic, generated);
+	    table = map(path, magic, size);
+	    if ( table == null )
+		throw new IOException("the file changed while it was written");
+	    return table;
+	}
+	catch (IOException e) {
+	    System.err.println("Could not save " + description + " to " + fileName + ": " + e.getMessage());
+	    return ByteBuffer.wrap(generated != null ? generated : generator.get());
+	}
+    }
+
+    // Returns the table mapped from path, or null if the file is missing, has the wrong size,
+    // or does not start with magic
+    private static ByteBuffer map(Path path, int magic, int size) throws IOException {
+	int fileSize = 4 + size;
+	if ( !Files.exists(path) || Files.size(path) != fileSize )
+	    return null;
+	try ( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+	    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+	    return mapped.getInt(0) == magic ? mapped.position(4).slice() : null;
+	}
+    }
+
+    // Writes table to path, preceded by magic
+    private static void save(Path path, int magic, byte[] table) throws IOException {
+	try ( DataOutputStream out = new DataOutputStream(new FileOutputStream(path.toFile())) ) {
+	    out.writeInt(magic);
+	    out.write(table);
+	}
+    }
+}
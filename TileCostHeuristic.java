@@ -0,0 +1,50 @@
+// A heuristic that is a sum of per-tile costs
+// The costs are precomputed as a table indexed by board size, tile and cell,
+// so that a move, which changes exactly one tile's cell, updates h(n) with a table lookup
+
+public abstract class TileCostHeuristic implements Heuristic {
+    // name used for this heuristic in the command file
+    private final String name;
+    // costs[dimension][tile][cell] is the cost of tile sitting at cell on a board of that size
+    // costs[dimension][0] is all zeros, since the blank is not a tile
+    private final int[][][] costs;
+
+    protected TileCostHeuristic(String name) {
+	this.name = name;
+	costs = new int[State.MAX_DIMENSION + 1][][];
+	for ( int dimension = State.MIN_DIMENSION; dimension <= State.MAX_DIMENSION; dimension++ ) {
+	    int cells = dimension * dimension;
+	    costs[dimension] = new int[cells][cells];
+	    for ( int tile = 1; tile < cells; tile++ ) {
+		for ( int cell = 0; cell < cells; cell++ )
+		    costs[dimension][tile][cell] = tileCost(dimension, tile, cell);
+	    }
+	}
+    }
+
+    // Returns the cost of tile sitting at cell on a board with dimension rows and columns
+    // Only used to fill the cost table, from the constructor
+    protected abstract int tileCost(int dimension, int tile, int cell);
+
+    // Returns the precomputed cost of tile sitting at cell on a board with dimension rows and columns
+    public int cost(int dimension, int tile, int cell) {
+	return costs[dimension][tile][cell];
+    }
+
+    // Updates the sum of tile costs with the moved tile's change of cell
+    public int update(State state, int estimatedCost, int tile, int oldCell, int newCell) {
+	int[][] costs = this.costs[state.getDimension()];
+	return estimatedCost - costs[tile][oldCell] + costs[tile][newCell];
+    }
+
+    // Returns the Manhattan distance between cell and the goal position of tile,
+    // which is cell number tile, on a board with dimension rows and columns
+    protected static int manhattan(int dimension, int tile, int cell) {
+	return Math.abs( tile / dimension - cell / dimension ) + Math.abs( tile % dimension - cell % dimension );
+    }
+
+    @Override
+    public String toString() {
+	return name;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.ArrayDeque;
+
+// Walking distance heuristic
+// Looking only at rows, a board is summarized by how many tiles of each goal row sit in each row,
+// and a vertical move carries one tile from the blank's neighbouring row into the blank's row
+// The vertical walking distance is the fewest such moves that bring every tile to its goal row,
+// and the horizontal one is the same for columns; their sum is admissible, since every move
+// is either vertical or horizontal, and it accounts for tiles blocking each other within a line
+// Transposing the goal board gives the goal board again, so both use the same table of distances,
+// generated once per board size by a breadth first search over the row summaries from the goal
+
+public class WalkingDistance implements Heuristic {
+    // a row summary is packed into a long, the count of tiles in row r with goal row g
+    // in the 3 bits starting at bit 3 * (r*dimension + g), and the blank's row above them
+    private static final int COUNT_BITS = 3;
+    private static final int BLANK_SHIFT = 48;
+    // largest board whose row summary fits below BLANK_SHIFT
+    private static final int MAX_DIMENSION = 4;
+
+    // Holder class, so the tables are generated on first use and exactly once
+    // DISTANCES[dimension] holds the distance of every row summary from the goal for that board size
+    private static class Holder {
+	static final LongIntHashMap[] DISTANCES = new LongIntHashMap[MAX_DIMENSION + 1];
+	static {
+	    for ( int dimension = State.MIN_DIMENSION; dimension <= MAX_DIMENSION; dimension++ )
+		DISTANCES[dimension] = generate(dimension);
+	}
+    }
+
+    public boolean covers(int dimension) {
+	return dimension <= MAX_DIMENSION;
+    }
+
+    // Returns the vertical plus the horizontal walking distance of state
+    public int estimate(State state) {
+	int dimension = state.getDimension();
+	if ( !covers(dimension) )
+	    throw new IllegalArgumentException("The wd heuristic only covers boards up to 4x4");
+	long rows = 0;
+	long columns = 0;
+	for ( int cell = 0; cell < dimension * dimension; cell++ ) {
+	    int tile = state.tileAt(cell);
+	    if ( tile == 0 ) {
+		rows |= (long) (cell / dimension) << BLANK_SHIFT;
+		columns |= (long) (cell % dimension) << BLANK_SHIFT;
+	    }
+	    else {
+		rows += 1L << (COUNT_BITS * (cell / dimension * dimension + tile / dimension));
+		columns += 1L << (COUNT_BITS * (cell % dimension * dimension + tile % dimension));
+	    }
+	}
+	LongIntHashMap distances = Holder.DISTANCES[dimension];
+	return distances.get(rows, 0) + distances.get(columns, 0);
+    }
+
+    // Generates the distances of every row summary reachable from the goal by breadth first search
+    // Moves are reversible, so the distance from the goal is also the distance to the goal
+    private static LongIntHashMap generate(int dimension) {
+	LongIntHashMap distances = new LongIntHashMap();
+	// the goal has every tile in its goal row, and the blank in row 0 in place of tile 0
+	long goal = 0;
+	for ( int r = 0; r < dimension; r++ )
+	    goal += (long) (r == 0 ? dimension - 1 : dimension) << (COUNT_BITS * (r * dimension + r));
+	ArrayDeque<Long> queue = new ArrayDeque<Long>();
+	distances.put(goal, 0);
+	queue.add(goal);
+
+	while ( !queue.isEmpty() ) {
+	    long summary = queue.poll();
+	    int distance = distances.get(summary, 0);
+	    int blank = (int) (summary >>> BLANK_SHIFT);
+	    for ( int next = blank - 1; next <= blank + 1; next += 2 ) {
+		if ( next < 0 || next >= dimension )
+		    continue;
+		// move a tile of each goal row present in the neighbouring row into the blank's row
+		for ( int g = 0; g < dimension; g++ ) {
+		    int from = COUNT_BITS * (next * dimension + g);
+		    if ( ((summary >>> from) & 0x7) == 0 )
+			continue;
+		    long child = (summary & ((1L << BLANK_SHIFT) - 1))
+			- (1L << from)
+			+ (1L << (COUNT_BITS * (blank * dimension + g)))
+			| ((long) next << BLANK_SHIFT);
+		    if ( !distances.containsKey(child) ) {
+			distances.put(child, distance + 1);
+			queue.add(child);
+		    }
+		}
+	    }
+	}
+	return distances;
+    }
+
+    @Override
+    public String toString() {
+	return "wd";
+    }
+}
@@ -0,0 +1,45 @@
+package puzzle;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Fixed corpus of boards that the benchmarks cycle through, one board per operation
+// Each board is randomized from its own seed, the same seeds as Benchmark, so results are comparable
+// 4x4 boards are randomized with fewer moves so that every solver finishes in reasonable time
+
+@State(Scope.Thread)
+public class Boards {
+    // seed that the corpus boards are derived from
+    private static final long SEED = 112209913;
+    // number of boards in the corpus, a power of two
+    static final int CORPUS_SIZE = 32;
+
+    @Param({"3", "4"})
+    public int dimension;
+
+    final puzzle.State[] corpus = new puzzle.State[CORPUS_SIZE];
+    // the corpus boards, evaluated with h2
+    final puzzle.State[] evaluated = new puzzle.State[CORPUS_SIZE];
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+	int steps = dimension == 3 ? 100 : 40;
+	for ( int i = 0; i < CORPUS_SIZE; i++ ) {
+	    corpus[i] = new puzzle.State(dimension);
+	    corpus[i].randomize(steps, new Random(SEED + i));
+	    evaluated[i] = corpus[i].duplicate();
+	    evaluated[i].evaluate(Heuristic.H2);
+	}
+    }
+
+    // Returns the index of the next corpus board
+    int next() {
+	return next++ & (CORPUS_SIZE - 1);
+    }
+}
@@ -0,0 +1,73 @@
+package puzzle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+// JMH benchmarks for the solvers end to end
+// One operation is solving one corpus board, and returns the number of moves found
+// so that the search cannot be optimized away
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+
+    // The heuristic that the informed searches use
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    public static class Search {
+	@Param({"h2", "lc"})
+	public String heuristic;
+
+	Heuristic selected;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+	    selected = Heuristic.forName(heuristic);
+	}
+    }
+
+    // Returns metrics that make the solver print nothing
+    private static SearchStats quiet() {
+	SearchStats stats = new SearchStats();
+	stats.setQuiet(true);
+	return stats;
+    }
+
+    @Benchmark
+    public int aStar(Boards boards, Search search) {
+	return Solve.solveAStar(boards.corpus[boards.next()], search.selected, -1, new HeapFrontier(), quiet())[0];
+    }
+
+    @Benchmark
+    public int aStarBucket(Boards boards, Search search) {
+	return Solve.solveAStar(boards.corpus[boards.next()], search.selected, -1, new BucketFrontier(), quiet())[0];
+    }
+
+    @Benchmark
+    public int idaStar(Boards boards, Search search) {
+	return Solve.solveIDAStar(boards.corpus[boards.next()], search.selected, -1, quiet())[0];
+    }
+
+    @Benchmark
+    public int bidirectional(Boards boards, Search search) {
+	return Solve.solveBidirectional(boards.corpus[boards.next()], search.selected, -1, quiet())[0];
+    }
+
+    @Benchmark
+    public int localBeamSearch(Boards boards) {
+	return Solve.solveLocalBeamSearch(boards.corpus[boards.next()], 50, -1, quiet())[0];
+    }
+}
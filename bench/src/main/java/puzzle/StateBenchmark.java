@@ -0,0 +1,87 @@
+package puzzle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// JMH benchmarks for the State operations on the hot path of the searches
+// One operation is one call on one corpus board
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmark {
+
+    // The frontier and explored sets that processChildren fills
+    @org.openjdk.jmh.annotations.State(Scope.Thread)
+    public static class Sets {
+	final Frontier frontier = new HeapFrontier();
+	final LongHashSet explored = new LongHashSet();
+	// holds every child of the corpus boards, so that expanding them only finds duplicates
+	final LongHashSet allChildren = new LongHashSet();
+	final SearchStats stats = new SearchStats();
+
+	@Setup(Level.Trial)
+	public void setUp(Boards boards) {
+	    for ( puzzle.State board : boards.corpus ) {
+		for ( int move : board.moves() )
+		    allChildren.add(board.childBoard(move), board.childBoardHigh(move));
+	    }
+	}
+    }
+
+    @Benchmark
+    public puzzle.State duplicate(Boards boards) {
+	return boards.corpus[boards.next()].duplicate();
+    }
+
+    @Benchmark
+    public int calculateH2(Boards boards) {
+	return boards.corpus[boards.next()].calculateH2();
+    }
+
+    @Benchmark
+    public int linearConflict(Boards boards) {
+	return Heuristic.LC.estimate(boards.corpus[boards.next()]);
+    }
+
+    @Benchmark
+    public int hashCode(Boards boards) {
+	return boards.corpus[boards.next()].hashCode();
+    }
+
+    @Benchmark
+    public void childBoards(Boards boards, Blackhole blackhole) {
+	puzzle.State board = boards.corpus[boards.next()];
+	for ( int move : board.moves() ) {
+	    blackhole.consume(board.childBoard(move));
+	    blackhole.consume(board.childBoardHigh(move));
+	}
+    }
+
+    @Benchmark
+    public int processChildren(Boards boards, Sets sets) {
+	int children = Solve.processChildren(boards.evaluated[boards.next()], Heuristic.H2, sets.frontier,
+					     sets.explored, null, sets.stats);
+	sets.frontier.clear();
+	return children;
+    }
+
+    @Benchmark
+    public int processChildrenDuplicates(Boards boards, Sets sets) {
+	return Solve.processChildren(boards.evaluated[boards.next()], Heuristic.H2, sets.frontier,
+				     sets.allChildren, null, sets.stats);
+    }
+}